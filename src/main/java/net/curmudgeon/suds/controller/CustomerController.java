@@ -1,21 +1,53 @@
 package net.curmudgeon.suds.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.curmudgeon.suds.controller.exception.BadRequestException;
 import net.curmudgeon.suds.controller.exception.MissingRecordException;
+import net.curmudgeon.suds.controller.request.CursorCodec;
+import net.curmudgeon.suds.controller.response.BatchResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse.LineResult;
+import net.curmudgeon.suds.controller.response.JsonArrayStream;
+import net.curmudgeon.suds.controller.response.PageResponse;
+import net.curmudgeon.suds.controller.response.Projections;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Pet;
 import net.curmudgeon.suds.repository.CustomerRepository;
+import net.curmudgeon.suds.repository.BatchWriter;
+import net.curmudgeon.suds.repository.PagedResult;
+import net.curmudgeon.suds.repository.ParallelWriter;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.KeyUtils;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -39,20 +71,85 @@ import net.curmudgeon.suds.repository.CustomerRepository;
 public class CustomerController {
 	private static final Logger log = LogManager.getLogger(CustomerController.class);
 	
+	// Most phone numbers accepted by one batch lookup.
+	private static final int MAX_BATCH_KEYS = 500;
+	
+	// Cursor scopes, a cursor only works on the list it came from.
+	private static final String PARENT_CURSOR = "customer";
+	private static final String PET_CURSOR = "pet";
+	
 	@Autowired
 	private CustomerRepository customerRepository;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CursorCodec cursorCodec;
+	
+	@Autowired
+	private ParallelWriter parallelWriter;
 
 	/**
 	 * Default path, returns all customers with pets.
 	 */
 	@GetMapping(value="/", produces="application/json")
 	public List<Parent> getAllParents() {
-		List<Parent> parents = customerRepository.getAllParents();
+		List<Parent> parents = customerRepository.getAllParentsWithPets();
 		log.debug("found [" + parents.size() + "] customers");
-		parents.stream().forEach(parent -> parent.setPets(customerRepository.getPetsForParent(parent.getPhoneNumber())));
 		return parents;
 	}
 
+	/**
+	 * Default path with fields, returns all customers with pets but reads and returns
+	 * only the named fields, e.g. fields=firstName,lastName,phoneNumber. Fields can be
+	 * parent or pet attributes and apply to both.
+	 * 
+	 * @param fields
+	 */
+	@GetMapping(value="/", params={"fields", "!limit", "!stream"}, produces="application/json")
+	public List<Map<String,Object>> getAllParents(@RequestParam List<String> fields) {
+		Set<String> requested = Projections.fields(fields);
+		List<Parent> parents = customerRepository.getAllParentsWithPets(requested);
+		
+		List<Map<String,Object>> results = new ArrayList<Map<String,Object>>();
+		for (Parent parent: parents) {
+			Map<String,Object> projected = Projections.project(objectMapper, parent, requested);
+			projected.put("pets", Projections.project(objectMapper,
+					(parent.getPets() != null) ? parent.getPets() : Collections.emptyList(), requested));
+			results.add(projected);
+		}
+		log.debug("found [" + parents.size() + "] customers with fields " + requested);
+		return results;
+	}
+
+	/**
+	 * Default path with stream=true, writes customers with pets out as the table is
+	 * read. Memory use stays flat however many customers there are, but they come in
+	 * table order rather than sorted.
+	 */
+	@GetMapping(value="/", params={"stream=true", "!limit"}, produces="application/json")
+	public ResponseEntity<StreamingResponseBody> streamAllParents() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(new JsonArrayStream<Parent>(objectMapper, customerRepository::streamAllParentsWithPets));
+	}
+
+	/**
+	 * Default path with a limit, returns one page of customers with pets. Pass the
+	 * cursor from the response back to get the next page.
+	 * 
+	 * @param limit
+	 * @param cursor
+	 */
+	@GetMapping(value="/", params="limit", produces="application/json")
+	public PageResponse<Parent> getParentsPage(@RequestParam int limit, @RequestParam(required=false) String cursor) {
+		CursorCodec.checkLimit(limit);
+		PagedResult<Parent> page = customerRepository.getParentsWithPetsPage(limit, cursorCodec.decode(PARENT_CURSOR, cursor));
+		log.debug("found [" + page.getItems().size() + "] customers, more [" + page.hasMore() + "]");
+		return new PageResponse<Parent>(page.getItems(), cursorCodec.encode(PARENT_CURSOR, page.getLastEvaluatedKey()));
+	}
+
 	/**
 	 * Returns specific customer by phone number.
 	 * 
@@ -60,15 +157,50 @@ public class CustomerController {
 	 */
 	@GetMapping(value="/{phoneNumber}", produces="application/json")
 	public Parent getParent(@PathVariable String phoneNumber) {
-		Parent parent = customerRepository.getParentByPhoneNumber(phoneNumber);
-		if (parent != null) {
-			parent.setPets(customerRepository.getPetsForParent(parent.getPhoneNumber()));
-		} else {
+		Parent parent = customerRepository.getParentWithPets(phoneNumber);
+		if (parent == null) {
 			throw new MissingRecordException(phoneNumber);
 		}
 		return parent;
 	}
 
+	/**
+	 * Returns customers with pets for a list of phone numbers, in the order asked,
+	 * with one storage round trip per distinct customer run side by side. Phone
+	 * numbers without a customer come back as missing. Sample posted JSON:
+	 * 
+	 * ["(410) 123-1234", "(333) 444-5555"]
+	 * 
+	 * @param phoneNumbers
+	 */
+	@PostMapping(value="/batch", consumes="application/json", produces="application/json")
+	public BatchResponse<Parent> getParents(@RequestBody List<String> phoneNumbers) {
+		if (phoneNumbers.size() > MAX_BATCH_KEYS)
+			throw new BadRequestException("at most " + MAX_BATCH_KEYS + " phone numbers per batch, got " + phoneNumbers.size());
+		if (phoneNumbers.contains(null))
+			throw new BadRequestException("phone numbers can't be null");
+		
+		Map<String,String> customerIds = new LinkedHashMap<>();
+		phoneNumbers.forEach(phoneNumber -> customerIds.put(phoneNumber, CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId()));
+		
+		Map<String,Parent> parents = new HashMap<>();
+		customerRepository.getParentsWithPets(customerIds.values()).forEach(parent -> parents.put(parent.getCustomerId(), parent));
+		
+		// Different spellings of one phone number return the customer once.
+		BatchResponse<Parent> response = new BatchResponse<Parent>();
+		Set<String> returned = new HashSet<String>();
+		customerIds.forEach((phoneNumber, customerId) -> {
+			Parent parent = parents.get(customerId);
+			if (parent == null)
+				response.getMissing().add(phoneNumber);
+			else if (returned.add(customerId))
+				response.getFound().add(parent);
+		});
+		
+		log.debug("found [" + response.getFound().size() + "] customers, [" + response.getMissing().size() + "] missing");
+		return response;
+	}
+
 	/**
 	 * Returns all pets.
 	 */
@@ -79,6 +211,44 @@ public class CustomerController {
 		return pets;
 	}
 
+	/**
+	 * Returns all pets with only the named fields, e.g. fields=name,type.
+	 * 
+	 * @param fields
+	 */
+	@GetMapping(value="/pets", params={"fields", "!limit", "!stream"}, produces="application/json")
+	public List<Map<String,Object>> getAllPets(@RequestParam List<String> fields) {
+		Set<String> requested = Projections.fields(fields);
+		List<Pet> pets = customerRepository.getAllPets(requested);
+		log.debug("found [" + pets.size() + "] pets with fields " + requested);
+		return Projections.project(objectMapper, pets, requested);
+	}
+
+	/**
+	 * Returns all pets with stream=true, written out as the table is read, unsorted.
+	 */
+	@GetMapping(value="/pets", params={"stream=true", "!limit"}, produces="application/json")
+	public ResponseEntity<StreamingResponseBody> streamAllPets() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(new JsonArrayStream<Pet>(objectMapper, customerRepository::streamAllPets));
+	}
+
+	/**
+	 * Returns one page of pets when given a limit. Pass the cursor from the response
+	 * back to get the next page.
+	 * 
+	 * @param limit
+	 * @param cursor
+	 */
+	@GetMapping(value="/pets", params="limit", produces="application/json")
+	public PageResponse<Pet> getPetsPage(@RequestParam int limit, @RequestParam(required=false) String cursor) {
+		CursorCodec.checkLimit(limit);
+		PagedResult<Pet> page = customerRepository.getPetsPage(limit, cursorCodec.decode(PET_CURSOR, cursor));
+		log.debug("found [" + page.getItems().size() + "] pets, more [" + page.hasMore() + "]");
+		return new PageResponse<Pet>(page.getItems(), cursorCodec.encode(PET_CURSOR, page.getLastEvaluatedKey()));
+	}
+
 	/**
 	 * Saves out a customer. Sample posted JSON:
 	 * 
@@ -106,17 +276,147 @@ public class CustomerController {
 	 * 	]
 	 * }
 	 * 
+	 * The parent and pets are written together in batches. Pass atomic=true to write
+	 * them in a single transaction instead.
+	 * 
 	 * @param Parent
+	 * @param atomic
 	 */
 	@PostMapping(value="/", consumes="application/json")
-	public void saveParent(@RequestBody Parent parent) {
-		customerRepository.saveParent(parent);
+	public void saveParent(@RequestBody Parent parent, @RequestParam(defaultValue="false") boolean atomic) {
 		
-		// Save out pets separately. Phone is not required for
-		// each pet, so set it manually.
-		for (Pet pet: parent.getPets()) {
-			pet.setPhoneNumber(parent.getPhoneNumber());
-			customerRepository.savePet(pet);
+		// Phone is not required for each pet, the repository sets it from the parent.
+		customerRepository.saveParentWithPets(parent, atomic);
+	}
+
+	/**
+	 * Imports customers from newline delimited JSON, one customer with pets per line
+	 * in the same form saveParent takes. Lines are checked as they're read and valid
+	 * ones go out in batches of up to 25 items, a few batches at a time, with reading
+	 * held up while the writes catch up. A customer and their pets always go in the
+	 * same batch, so one with more than 24 pets is rejected. Saving a customer that's
+	 * already there replaces it, same as saveParent, but two lines with the same phone
+	 * number would overwrite each other, so the later one is rejected. Sample posted body:
+	 * 
+	 * {"firstName": "Frankie", "lastName": "Miller", "phoneNumber": "(333) 444-5555", "pets": [{"name": "Wolfie", "type": "Dog"}]}
+	 * {"firstName": "Jo", "lastName": "Rivera", "phoneNumber": "(333) 444-6666"}
+	 * 
+	 * @param body, newline delimited JSON
+	 * @return counts, and the lines that weren't saved with the reason
+	 */
+	@PostMapping(value="/import", consumes={MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE}, produces="application/json")
+	public ImportResponse importParents(InputStream body) throws IOException {
+		ImportResponse response = new ImportResponse();
+		ParallelWriter.Batches<Integer> batches = parallelWriter.start();
+		
+		List<Integer> lines = new ArrayList<Integer>();
+		List<Parent> parents = new ArrayList<Parent>();
+		List<Pet> pets = new ArrayList<Pet>();
+		Map<String,Integer> imported = new HashMap<>();
+		
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+		String line;
+		for (int lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+			if (line.trim().isEmpty())
+				continue;
+			response.setReceived(response.getReceived() + 1);
+			
+			Parent parent;
+			try {
+				parent = objectMapper.readValue(line, Parent.class);
+			} catch (JsonProcessingException e) {
+				response.getRejected().add(new LineResult(lineNumber, "invalid JSON: " + e.getOriginalMessage()));
+				continue;
+			}
+			String problem = validate(parent);
+			String customerId = (problem == null) ? CustomerKey.fromPhoneNumber(parent.getPhoneNumber()).getCustomerId() : null;
+			if (problem == null && imported.containsKey(customerId))
+				problem = "phoneNumber already imported on line " + imported.get(customerId);
+			if (problem != null) {
+				response.getRejected().add(new LineResult(lineNumber, problem));
+				continue;
+			}
+			imported.put(customerId, lineNumber);
+			
+			// Send what's queued first if this customer won't fit in the same BatchWriteItem.
+			int items = 1 + ((parent.getPets() != null) ? parent.getPets().size() : 0);
+			if (parents.size() + pets.size() + items > BatchWriter.BATCH_WRITE_LIMIT) {
+				submit(batches, lines, parents, pets);
+				lines = new ArrayList<Integer>();
+				parents = new ArrayList<Parent>();
+				pets = new ArrayList<Pet>();
+			}
+			
+			// Phone is not required for each pet, it comes from the parent.
+			if (parent.getPets() != null) {
+				for (Pet pet: parent.getPets()) {
+					pet.setPhoneNumber(parent.getPhoneNumber());
+					pets.add(pet);
+				}
+			}
+			parents.add(parent);
+			lines.add(lineNumber);
+			
+			if (parents.size() + pets.size() >= BatchWriter.BATCH_WRITE_LIMIT) {
+				submit(batches, lines, parents, pets);
+				lines = new ArrayList<Integer>();
+				parents = new ArrayList<Parent>();
+				pets = new ArrayList<Pet>();
+			}
+		}
+		if (!parents.isEmpty())
+			submit(batches, lines, parents, pets);
+		
+		Map<Integer,String> failures = batches.finish();
+		failures.forEach((lineNumber, reason) -> response.getFailed().add(new LineResult(lineNumber, reason)));
+		response.setImported(imported.size() - failures.size());
+		
+		log.info("imported [" + response.getImported() + "] of [" + response.getReceived() + "] customers, ["
+				+ response.getRejected().size() + "] rejected, [" + failures.size() + "] failed");
+		return response;
+	}
+
+	/**
+	 * Queue one batch of the import.
+	 * 
+	 * @param import batches
+	 * @param line numbers of the customers in the batch
+	 * @param Parents
+	 * @param Pets
+	 */
+	private void submit(ParallelWriter.Batches<Integer> batches, List<Integer> lines, List<Parent> parents, List<Pet> pets) {
+		batches.submit(lines, () -> customerRepository.saveParentsAndPets(parents, pets));
+	}
+
+	/**
+	 * Check an imported customer has everything its keys are built from.
+	 * 
+	 * @param Parent
+	 * @return what's wrong, or null if nothing is
+	 */
+	private String validate(Parent parent) {
+		if (parent == null)
+			return "no customer";
+		if (parent.getPhoneNumber() == null
+				|| CustomerKey.fromPhoneNumber(parent.getPhoneNumber()).getCustomerId().length() - CustomerKey.PREFIX.length() != 10)
+			return "phoneNumber must have 10 digits";
+		if (blank(parent.getFirstName()))
+			return "firstName is required";
+		if (blank(parent.getLastName()))
+			return "lastName is required";
+		if (parent.getPets() != null) {
+			if (parent.getPets().size() >= BatchWriter.BATCH_WRITE_LIMIT)
+				return "at most " + (BatchWriter.BATCH_WRITE_LIMIT - 1) + " pets per customer";
+			for (Pet pet: parent.getPets()) {
+				if (pet == null || blank(pet.getName()))
+					return "every pet needs a name";
+			}
 		}
+		return null;
+	}
+
+	// Key parts are scrubbed to letters and digits, so a value without any is as good as missing.
+	private boolean blank(String value) {
+		return value == null || KeyUtils.formatStringForKey(value).isEmpty();
 	}
 }
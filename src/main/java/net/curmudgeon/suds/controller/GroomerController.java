@@ -1,20 +1,39 @@
 package net.curmudgeon.suds.controller;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.curmudgeon.suds.controller.exception.BadRequestException;
 import net.curmudgeon.suds.controller.exception.MissingRecordException;
+import net.curmudgeon.suds.controller.request.CursorCodec;
+import net.curmudgeon.suds.controller.response.BatchResponse;
+import net.curmudgeon.suds.controller.response.JsonArrayStream;
+import net.curmudgeon.suds.controller.response.PageResponse;
+import net.curmudgeon.suds.controller.response.Projections;
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.repository.GroomerRepository;
+import net.curmudgeon.suds.repository.PagedResult;
+import net.curmudgeon.suds.util.GroomerKey;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -37,10 +56,22 @@ import net.curmudgeon.suds.repository.GroomerRepository;
 @RequestMapping("groomer")
 public class GroomerController {
 	private static final Logger log = LogManager.getLogger(GroomerController.class);
+	
+	// Most employee numbers accepted by one batch lookup.
+	private static final int MAX_BATCH_KEYS = 500;
+	
+	// Cursor scope, a cursor only works on the list it came from.
+	private static final String GROOMER_CURSOR = "groomer";
 
 	@Autowired
 	private GroomerRepository groomerRepository;
 	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private CursorCodec cursorCodec;
+	
 	/**
 	 * Default path, returns all groomers.
 	 */
@@ -51,6 +82,45 @@ public class GroomerController {
 		return groomers;
 	}
 
+	/**
+	 * Default path with fields, returns all groomers with only the named fields,
+	 * e.g. fields=firstName,lastName.
+	 * 
+	 * @param fields
+	 */
+	@GetMapping(value="/", params={"fields", "!limit", "!stream"}, produces="application/json")
+	public List<Map<String,Object>> getAllGroomers(@RequestParam List<String> fields) {
+		Set<String> requested = Projections.fields(fields);
+		List<Groomer> groomers = groomerRepository.getAllGroomers(requested);
+		log.debug("found [" + groomers.size() + "] groomers with fields " + requested);
+		return Projections.project(objectMapper, groomers, requested);
+	}
+
+	/**
+	 * Default path with stream=true, writes groomers out as the index is read, unsorted.
+	 */
+	@GetMapping(value="/", params={"stream=true", "!limit"}, produces="application/json")
+	public ResponseEntity<StreamingResponseBody> streamAllGroomers() {
+		return ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(new JsonArrayStream<Groomer>(objectMapper, groomerRepository::streamAllGroomers));
+	}
+
+	/**
+	 * Default path with a limit, returns one page of groomers. Pass the cursor from
+	 * the response back to get the next page.
+	 * 
+	 * @param limit
+	 * @param cursor
+	 */
+	@GetMapping(value="/", params="limit", produces="application/json")
+	public PageResponse<Groomer> getGroomersPage(@RequestParam int limit, @RequestParam(required=false) String cursor) {
+		CursorCodec.checkLimit(limit);
+		PagedResult<Groomer> page = groomerRepository.getGroomersPage(limit, cursorCodec.decode(GROOMER_CURSOR, cursor));
+		log.debug("found [" + page.getItems().size() + "] groomers, more [" + page.hasMore() + "]");
+		return new PageResponse<Groomer>(page.getItems(), cursorCodec.encode(GROOMER_CURSOR, page.getLastEvaluatedKey()));
+	}
+
 	/**
 	 * Returns specific groomer by employee number.
 	 * 
@@ -65,6 +135,43 @@ public class GroomerController {
 		return groomer;
 	}
 	
+	/**
+	 * Returns groomers for a list of employee numbers, in the order asked, read with
+	 * BatchGetItem. Employee numbers without a groomer come back as missing. Sample
+	 * posted JSON:
+	 * 
+	 * ["SUDS001", "SUDS004"]
+	 * 
+	 * @param employeeNumbers
+	 */
+	@PostMapping(value="/batch", consumes="application/json", produces="application/json")
+	public BatchResponse<Groomer> getGroomers(@RequestBody List<String> employeeNumbers) {
+		if (employeeNumbers.size() > MAX_BATCH_KEYS)
+			throw new BadRequestException("at most " + MAX_BATCH_KEYS + " employee numbers per batch, got " + employeeNumbers.size());
+		if (employeeNumbers.contains(null))
+			throw new BadRequestException("employee numbers can't be null");
+		
+		Map<String,String> groomerIds = new LinkedHashMap<>();
+		employeeNumbers.forEach(employeeNumber -> groomerIds.put(employeeNumber, GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId()));
+		
+		Map<String,Groomer> groomers = new HashMap<>();
+		groomerRepository.getGroomers(groomerIds.values()).forEach(groomer -> groomers.put(groomer.getGroomerId(), groomer));
+		
+		// Different spellings of one employee number return the groomer once.
+		BatchResponse<Groomer> response = new BatchResponse<Groomer>();
+		Set<String> returned = new HashSet<String>();
+		groomerIds.forEach((employeeNumber, groomerId) -> {
+			Groomer groomer = groomers.get(groomerId);
+			if (groomer == null)
+				response.getMissing().add(employeeNumber);
+			else if (returned.add(groomerId))
+				response.getFound().add(groomer);
+		});
+		
+		log.debug("found [" + response.getFound().size() + "] groomers, [" + response.getMissing().size() + "] missing");
+		return response;
+	}
+	
 	/**
 	 * Saves out a groomer. Sample posted JSON:
 	 * 
@@ -1,35 +1,62 @@
 package net.curmudgeon.suds.controller;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import net.curmudgeon.suds.controller.exception.MissingRecordException;
+import net.curmudgeon.suds.controller.request.CursorCodec;
 import net.curmudgeon.suds.controller.request.ScheduleRequest;
 import net.curmudgeon.suds.controller.response.CustomerResponse;
 import net.curmudgeon.suds.controller.response.GroomerResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse.LineResult;
+import net.curmudgeon.suds.controller.response.PageResponse;
 import net.curmudgeon.suds.controller.response.PetResponse;
 import net.curmudgeon.suds.controller.response.ScheduleResponse;
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Pet;
 import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.repository.BatchWriter;
 import net.curmudgeon.suds.repository.CustomerRepository;
 import net.curmudgeon.suds.repository.GroomerRepository;
+import net.curmudgeon.suds.repository.PagedResult;
+import net.curmudgeon.suds.repository.ParallelWriter;
 import net.curmudgeon.suds.repository.ScheduleRepository;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.GroomerKey;
+import net.curmudgeon.suds.util.IdentityMap;
+import net.curmudgeon.suds.util.PetKey;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -62,6 +89,23 @@ public class ScheduleController {
 	@Autowired
 	private ScheduleRepository scheduleRepository;
 	
+	@Autowired
+	private IdentityMap identityMap;
+	
+	@Autowired
+	private CursorCodec cursorCodec;
+	
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	@Autowired
+	private ParallelWriter parallelWriter;
+	
+	// Entity types held in the identity map.
+	private static final String GROOMER = "groomer";
+	private static final String PARENT = "parent";
+	private static final String PET = "pet";
+	
 	private static DateTimeFormatter appointmentTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 	
 	/**
@@ -84,10 +128,37 @@ public class ScheduleController {
 		
 		// The actual schedule data only contains id information, use a response
 		// POJO to return more meaningful data.
-		List<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
-		schedules.stream().forEach(schedule -> responses.add(populateSchedule(schedule)));
+		return populateSchedules(schedules);
+	}
 
-		return responses;
+	/**
+	 * Retrieves one page of schedule entries between the specified start and end dates
+	 * (inclusive) when given a limit. Pass the cursor from the response back, with the
+	 * same dates, to get the next page.
+	 * 
+	 * @param startDate
+	 * @param endDate
+	 * @param limit
+	 * @param cursor
+	 * @return page of matching entries
+	 */
+	@GetMapping(value="/{startDate}/{endDate}", params="limit", produces="application/json")
+	public PageResponse<ScheduleResponse> getScheduleByDateRangePage(
+			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate startDate,
+			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate endDate,
+			@RequestParam int limit,
+			@RequestParam(required=false) String cursor) {
+		
+		CursorCodec.checkLimit(limit);
+		LocalDateTime startDateTime = startDate.atStartOfDay();
+		LocalDateTime endDateTime = endDate.atTime(23, 59);
+		
+		// The cursor is tied to the date range it was issued for.
+		String scope = "schedule/" + startDate + "/" + endDate;
+		PagedResult<Schedule> page = scheduleRepository.getSchedulePage(startDateTime, endDateTime, limit, cursorCodec.decode(scope, cursor));
+		log.debug("found [" + page.getItems().size() + "] schedule entries, more [" + page.hasMore() + "]");
+		
+		return new PageResponse<ScheduleResponse>(populateSchedules(page.getItems()), cursorCodec.encode(scope, page.getLastEvaluatedKey()));
 	}
 
 	/**
@@ -104,7 +175,7 @@ public class ScheduleController {
 			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate startDate,
 			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate endDate) {
 		
-		Groomer groomer = groomerRepository.getGroomerByEmployeeNumber(employeeNumber);
+		Groomer groomer = resolveGroomer(employeeNumber);
 		if (groomer == null) {
 			throw new MissingRecordException(employeeNumber);
 		}
@@ -117,10 +188,7 @@ public class ScheduleController {
 
 		// The actual schedule data only contains id information, use a response
 		// POJO to return more meaningful data.
-		List<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
-		schedules.stream().forEach(schedule -> responses.add(populateSchedule(schedule)));
-
-		return responses;
+		return populateSchedules(schedules);
 	}
 
 	/**
@@ -137,7 +205,7 @@ public class ScheduleController {
 			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate startDate,
 			@PathVariable @DateTimeFormat(pattern="yyyy-MM-dd") LocalDate endDate) {
 		
-		Parent parent = customerRepository.getParentByPhoneNumber(phoneNumber);
+		Parent parent = resolveParent(phoneNumber);
 		if (parent == null) {
 			throw new MissingRecordException(phoneNumber);
 		}
@@ -150,10 +218,7 @@ public class ScheduleController {
 
 		// The actual schedule data only contains id information, use a response
 		// POJO to return more meaningful data.
-		List<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
-		schedules.stream().forEach(schedule -> responses.add(populateSchedule(schedule)));
-
-		return responses;
+		return populateSchedules(schedules);
 	}
 
 	/**
@@ -169,12 +234,12 @@ public class ScheduleController {
 	@PostMapping(value="/", consumes="application/json")
 	public void saveSchedule(@RequestBody ScheduleRequest scheduleRequest) {
 
-		Groomer groomer = groomerRepository.getGroomerByEmployeeNumber(scheduleRequest.getEmployeeNumber());
+		Groomer groomer = resolveGroomer(scheduleRequest.getEmployeeNumber());
 		if (groomer == null) {
 			throw new MissingRecordException(scheduleRequest.getEmployeeNumber());
 		}
 
-		Parent parent = customerRepository.getParentByPhoneNumber(scheduleRequest.getPhoneNumber());
+		Parent parent = resolveParent(scheduleRequest.getPhoneNumber());
 		if (parent == null) {
 			throw new MissingRecordException(scheduleRequest.getPhoneNumber());
 		}
@@ -194,22 +259,255 @@ public class ScheduleController {
 	}
 	
 	/**
-	 * Populate a response object from the Schedule entry. Since we only store record
-	 * ids for a schedule entry, we populate a response object with expanded information
-	 * to be a little more user friendly.
+	 * Imports schedule entries from newline delimited JSON, one schedule request per
+	 * line in the same form saveSchedule takes. All lines are read first, then the
+	 * groomers, customers and pets they name are looked up once each, groomers and pets
+	 * in batch reads and customers in parallel queries, and every line naming one that
+	 * doesn't exist is rejected. The rest are written in
+	 * batches of 25, a few batches at a time. Two lines booking the same appointment
+	 * time would overwrite each other, so the later one is rejected.
 	 * 
-	 * @param schedule
-	 * @return populated ScheduleResponse
+	 * @param body, newline delimited JSON
+	 * @return counts, and the lines that weren't saved with the reason
 	 */
-	private ScheduleResponse populateSchedule(Schedule schedule) {
-		ScheduleResponse scheduleResponse = new ScheduleResponse();
+	@PostMapping(value="/import", consumes={MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE}, produces="application/json")
+	public ImportResponse importSchedules(InputStream body) throws IOException {
+		ImportResponse response = new ImportResponse();
+		
+		// Parse and check each line, remembering the keys it refers to.
+		Map<Integer,ScheduleRequest> requests = new LinkedHashMap<>();
+		Map<Integer,LocalDateTime> appointmentTimes = new HashMap<>();
+		List<String> groomerIds = new ArrayList<>();
+		List<String> customerIds = new ArrayList<>();
+		List<PetKey> petKeys = new ArrayList<>();
 		
-		scheduleResponse.setScheduleId(schedule.getScheduleId());
-		scheduleResponse.setAppointmentTime(schedule.getAppointmentTime());
-		scheduleResponse.setGroomer(new GroomerResponse(groomerRepository.getGroomer(schedule.getGroomerId())));
-		scheduleResponse.setCustomer(new CustomerResponse(customerRepository.getParentByCustomerId(schedule.getCustomerId())));
-		scheduleResponse.setPet(new PetResponse(customerRepository.getPetByCustomerIdAndPetId(schedule.getCustomerId(), schedule.getPetId())));
+		BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+		String line;
+		for (int lineNumber = 1; (line = reader.readLine()) != null; lineNumber++) {
+			if (line.trim().isEmpty())
+				continue;
+			response.setReceived(response.getReceived() + 1);
+			
+			ScheduleRequest request;
+			try {
+				request = objectMapper.readValue(line, ScheduleRequest.class);
+			} catch (JsonProcessingException e) {
+				response.getRejected().add(new LineResult(lineNumber, "invalid JSON: " + e.getOriginalMessage()));
+				continue;
+			}
+			if (request == null || blank(request.getEmployeeNumber()) || blank(request.getPhoneNumber())
+					|| blank(request.getPetName()) || blank(request.getAppointmentTime())) {
+				response.getRejected().add(new LineResult(lineNumber, "appointmentTime, employeeNumber, phoneNumber and petName are required"));
+				continue;
+			}
+			try {
+				appointmentTimes.put(lineNumber, LocalDateTime.parse(request.getAppointmentTime(), appointmentTimeFormatter));
+			} catch (DateTimeParseException e) {
+				response.getRejected().add(new LineResult(lineNumber, "appointmentTime must be yyyy-MM-dd HH:mm"));
+				continue;
+			}
+			
+			CustomerKey customerKey = CustomerKey.fromPhoneNumber(request.getPhoneNumber());
+			groomerIds.add(GroomerKey.fromEmployeeNumber(request.getEmployeeNumber()).getGroomerId());
+			customerIds.add(customerKey.getCustomerId());
+			petKeys.add(PetKey.of(customerKey, request.getPetName()));
+			requests.put(lineNumber, request);
+		}
+		
+		// Resolve everything referenced, each distinct key once.
+		Resolved resolved = resolve(groomerIds, customerIds, petKeys);
+		Map<String,Groomer> groomers = resolved.groomers;
+		Map<String,Parent> parents = resolved.parents;
+		Map<PetKey,Pet> pets = resolved.pets;
+		
+		// Build the entries, rejecting lines that name missing records.
+		List<Integer> lines = new ArrayList<Integer>();
+		List<Schedule> schedules = new ArrayList<Schedule>();
+		Map<LocalDateTime,Integer> booked = new HashMap<>();
+		ParallelWriter.Batches<Integer> batches = parallelWriter.start();
+		
+		for (Map.Entry<Integer,ScheduleRequest> entry: requests.entrySet()) {
+			int lineNumber = entry.getKey();
+			ScheduleRequest request = entry.getValue();
+			CustomerKey customerKey = CustomerKey.fromPhoneNumber(request.getPhoneNumber());
+			
+			Groomer groomer = groomers.get(GroomerKey.fromEmployeeNumber(request.getEmployeeNumber()).getGroomerId());
+			Parent parent = parents.get(customerKey.getCustomerId());
+			Pet pet = pets.get(PetKey.of(customerKey, request.getPetName()));
+			LocalDateTime appointmentTime = appointmentTimes.get(lineNumber);
+			
+			String problem = null;
+			if (groomer == null)
+				problem = "no groomer " + request.getEmployeeNumber();
+			else if (parent == null)
+				problem = "no customer " + request.getPhoneNumber();
+			else if (pet == null)
+				problem = "no pet " + request.getPetName() + " for " + request.getPhoneNumber();
+			else if (booked.containsKey(appointmentTime))
+				problem = "appointment time already booked on line " + booked.get(appointmentTime);
+			if (problem != null) {
+				response.getRejected().add(new LineResult(lineNumber, problem));
+				continue;
+			}
+			booked.put(appointmentTime, lineNumber);
+			
+			Schedule schedule = new Schedule();
+			schedule.setAppointmentTime(appointmentTime);
+			schedule.setGroomerId(groomer.getGroomerId());
+			schedule.setCustomerId(parent.getCustomerId());
+			schedule.setPetId(pet.getId());
+			schedules.add(schedule);
+			lines.add(lineNumber);
+			
+			if (schedules.size() >= BatchWriter.BATCH_WRITE_LIMIT) {
+				submit(batches, lines, schedules);
+				lines = new ArrayList<Integer>();
+				schedules = new ArrayList<Schedule>();
+			}
+		}
+		if (!schedules.isEmpty())
+			submit(batches, lines, schedules);
 		
-		return scheduleResponse;
+		Map<Integer,String> failures = batches.finish();
+		failures.forEach((lineNumber, reason) -> response.getFailed().add(new LineResult(lineNumber, reason)));
+		response.getRejected().sort(Comparator.comparingInt(LineResult::getLine));
+		response.setImported(booked.size() - failures.size());
+		
+		log.info("imported [" + response.getImported() + "] of [" + response.getReceived() + "] schedule entries, ["
+				+ response.getRejected().size() + "] rejected, [" + failures.size() + "] failed");
+		return response;
+	}
+	
+	/**
+	 * Populate response objects from the Schedule entries. Since we only store record
+	 * ids for a schedule entry, we populate response objects with expanded information
+	 * to be a little more user friendly. Groomers, parents and pets are resolved through
+	 * the request's identity map, so each one is fetched at most once per request, in
+	 * batches, and joined in memory.
+	 * 
+	 * @param schedules
+	 * @return populated ScheduleResponses
+	 */
+	private List<ScheduleResponse> populateSchedules(List<Schedule> schedules) {
+		
+		// Collect the keys referenced by the entries, repeats included.
+		List<String> groomerIds = new ArrayList<>();
+		List<String> customerIds = new ArrayList<>();
+		List<PetKey> petKeys = new ArrayList<>();
+		for (Schedule schedule: schedules) {
+			groomerIds.add(schedule.getGroomerId());
+			customerIds.add(schedule.getCustomerId());
+			petKeys.add(PetKey.of(schedule.getCustomerId(), schedule.getPetId()));
+		}
+		
+		// Fetch whatever this request hasn't seen yet, indexed by key.
+		Resolved resolved = resolve(groomerIds, customerIds, petKeys);
+		Map<String,Groomer> groomers = resolved.groomers;
+		Map<String,Parent> parents = resolved.parents;
+		Map<PetKey,Pet> pets = resolved.pets;
+		log.debug("hydrated [" + schedules.size() + "] schedule entries from [" + groomers.size() + "] groomers, ["
+				+ parents.size() + "] customers and [" + pets.size() + "] pets");
+		
+		// Join in memory.
+		List<ScheduleResponse> responses = new ArrayList<ScheduleResponse>();
+		for (Schedule schedule: schedules) {
+			ScheduleResponse scheduleResponse = new ScheduleResponse();
+			
+			scheduleResponse.setScheduleId(schedule.getScheduleId());
+			scheduleResponse.setAppointmentTime(schedule.getAppointmentTime());
+			
+			Groomer groomer = groomers.get(schedule.getGroomerId());
+			if (groomer != null)
+				scheduleResponse.setGroomer(new GroomerResponse(groomer));
+			
+			Parent parent = parents.get(schedule.getCustomerId());
+			if (parent != null)
+				scheduleResponse.setCustomer(new CustomerResponse(parent));
+			
+			Pet pet = pets.get(PetKey.of(schedule.getCustomerId(), schedule.getPetId()));
+			if (pet != null)
+				scheduleResponse.setPet(new PetResponse(pet));
+			
+			responses.add(scheduleResponse);
+		}
+		
+		return responses;
+	}
+
+	/**
+	 * Look up a groomer through the request's identity map.
+	 * 
+	 * @param employee number
+	 * @return matching Groomer or null
+	 */
+	private Groomer resolveGroomer(String employeeNumber) {
+		return identityMap.resolve(GROOMER, GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId(), groomerRepository::getGroomer);
+	}
+
+	/**
+	 * Look up a parent through the request's identity map.
+	 * 
+	 * @param phone number
+	 * @return matching Parent or null
+	 */
+	private Parent resolveParent(String phoneNumber) {
+		return identityMap.resolve(PARENT, CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId(), customerRepository::getParentByCustomerId);
+	}
+
+	/**
+	 * Look up the groomers, parents and pets schedule entries refer to through the
+	 * request's identity map, each distinct key at most once and in batches.
+	 * 
+	 * @param groomer ids, repeats allowed
+	 * @param customer ids, repeats allowed
+	 * @param pet keys, repeats allowed
+	 * @return found records indexed by key
+	 */
+	private Resolved resolve(List<String> groomerIds, List<String> customerIds, List<PetKey> petKeys) {
+		Resolved resolved = new Resolved();
+		resolved.groomers = identityMap.resolveAll(GROOMER, groomerIds, ids -> groomerRepository.getGroomers(ids).stream()
+				.collect(Collectors.toMap(Groomer::getGroomerId, groomer -> groomer, (first, second) -> first)));
+		
+		resolved.parents = identityMap.resolveAll(PARENT, customerIds, ids -> customerRepository.getParentsByCustomerIds(ids).stream()
+				.collect(Collectors.toMap(Parent::getCustomerId, parent -> parent, (first, second) -> first)));
+		
+		resolved.pets = identityMap.resolveAll(PET, petKeys, keys -> customerRepository.getPets(keys.stream().map(this::petTemplate).collect(Collectors.toList())).stream()
+				.collect(Collectors.toMap(pet -> PetKey.of(pet.getCustomerId(), pet.getId()), pet -> pet, (first, second) -> first)));
+		return resolved;
+	}
+
+	/**
+	 * The repository takes Pets carrying just the key fields for batch reads.
+	 * 
+	 * @param pet key
+	 * @return key template Pet
+	 */
+	private Pet petTemplate(PetKey petKey) {
+		Pet pet = new Pet();
+		pet.setCustomerId(petKey.getCustomerId());
+		pet.setId(petKey.getPetId());
+		return pet;
+	}
+
+	/**
+	 * Queue one batch of the import.
+	 * 
+	 * @param import batches
+	 * @param line numbers of the entries in the batch
+	 * @param Schedules
+	 */
+	private void submit(ParallelWriter.Batches<Integer> batches, List<Integer> lines, List<Schedule> schedules) {
+		batches.submit(lines, () -> scheduleRepository.saveSchedules(schedules));
+	}
+
+	private boolean blank(String value) {
+		return value == null || value.trim().isEmpty();
+	}
+
+	// Records resolved for a set of schedule entries.
+	private static class Resolved {
+		private Map<String,Groomer> groomers;
+		private Map<String,Parent> parents;
+		private Map<PetKey,Pet> pets;
 	}
 }
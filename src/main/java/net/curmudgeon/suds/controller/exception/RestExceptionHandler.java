@@ -44,6 +44,28 @@ public class RestExceptionHandler {
 				.body(new ErrorResponse(LocalDateTime.now(), HttpStatus.NOT_FOUND.value(), "Missing record for " + e.getId(), request.getRequestURI()));
 	}
 
+	/**
+	 * Handle requests that can't be served as asked.
+	 */
+	@ExceptionHandler(BadRequestException.class)
+	public ResponseEntity<ErrorResponse> handleBadRequestException(HttpServletRequest request, BadRequestException e) {
+		log.error("bad request: " + e.getMessage());
+		return ResponseEntity
+				.status(HttpStatus.BAD_REQUEST)
+				.body(new ErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(), e.getMessage(), request.getRequestURI()));
+	}
+
+	/**
+	 * Handle arguments the repositories turned down, unknown fields and the like.
+	 */
+	@ExceptionHandler(IllegalArgumentException.class)
+	public ResponseEntity<ErrorResponse> handleIllegalArgumentException(HttpServletRequest request, IllegalArgumentException e) {
+		log.error("bad argument: " + e.getMessage());
+		return ResponseEntity
+				.status(HttpStatus.BAD_REQUEST)
+				.body(new ErrorResponse(LocalDateTime.now(), HttpStatus.BAD_REQUEST.value(), e.getMessage(), request.getRequestURI()));
+	}
+
 	/**
 	 * Handle all other exceptions.
 	 */
@@ -0,0 +1,165 @@
+package net.curmudgeon.suds.controller.request;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.curmudgeon.suds.controller.exception.BadRequestException;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Turns DynamoDB start keys into opaque page cursors and back. A cursor is the key's
+ * attributes in a compact binary form followed by a truncated HMAC, base64url encoded.
+ * The HMAC also covers the endpoint the cursor was issued for, so a cursor that was
+ * edited, or taken from a different list, is rejected instead of being handed to
+ * DynamoDB. Without a configured secret a random one is made up at startup, which
+ * works for a single instance but not for cursors handed between instances.
+ */
+public class CursorCodec {
+	private static final Logger log = LogManager.getLogger(CursorCodec.class);
+
+	// Largest page a client can ask for.
+	public static final int MAX_LIMIT = 1000;
+
+	private static final String ALGORITHM = "HmacSHA256";
+	private static final int SIGNATURE_LENGTH = 16;
+
+	private SecretKeySpec secretKey;
+
+	/**
+	 * @param secret used to sign cursors, shared by every instance serving the API,
+	 * null or empty for a random one
+	 */
+	public CursorCodec(String secret) {
+		if (secret == null || secret.isEmpty()) {
+			log.warn("suds.cursor.secret is not set, signing cursors with a random secret; "
+					+ "cursors from this instance won't work on any other or after a restart");
+			byte[] random = new byte[32];
+			new SecureRandom().nextBytes(random);
+			secretKey = new SecretKeySpec(random, ALGORITHM);
+		} else {
+			secretKey = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+		}
+	}
+
+	/**
+	 * Reject page sizes outside 1 to MAX_LIMIT.
+	 * 
+	 * @param limit
+	 */
+	public static void checkLimit(int limit) {
+		if (limit < 1 || limit > MAX_LIMIT)
+			throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT + ", got " + limit);
+	}
+
+	/**
+	 * @param list the cursor is for
+	 * @param start key of the next page, string and number attributes only
+	 * @return cursor, or null when there is no next page
+	 */
+	public String encode(String scope, Map<String,AttributeValue> startKey) {
+		if (startKey == null || startKey.isEmpty())
+			return null;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream data = new DataOutputStream(bytes)) {
+			data.writeByte(startKey.size());
+			for (Map.Entry<String,AttributeValue> attribute: startKey.entrySet()) {
+				data.writeUTF(attribute.getKey());
+				if (attribute.getValue().n() != null) {
+					data.writeByte('N');
+					data.writeUTF(attribute.getValue().n());
+				} else {
+					data.writeByte('S');
+					data.writeUTF(attribute.getValue().s());
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		byte[] payload = bytes.toByteArray();
+		byte[] signature = sign(scope, payload);
+		byte[] cursor = Arrays.copyOf(payload, payload.length + SIGNATURE_LENGTH);
+		System.arraycopy(signature, 0, cursor, payload.length, SIGNATURE_LENGTH);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor);
+	}
+
+	/**
+	 * @param list the cursor is for
+	 * @param cursor from a previous page, may be null
+	 * @return start key, or null for the first page
+	 */
+	public Map<String,AttributeValue> decode(String scope, String cursor) {
+		if (cursor == null || cursor.isEmpty())
+			return null;
+
+		try {
+			byte[] bytes = Base64.getUrlDecoder().decode(cursor);
+			if (bytes.length <= SIGNATURE_LENGTH)
+				throw new BadRequestException("invalid cursor");
+
+			byte[] payload = Arrays.copyOf(bytes, bytes.length - SIGNATURE_LENGTH);
+			byte[] signature = Arrays.copyOfRange(bytes, payload.length, bytes.length);
+			if (!MessageDigest.isEqual(signature, Arrays.copyOf(sign(scope, payload), SIGNATURE_LENGTH)))
+				throw new BadRequestException("invalid cursor");
+
+			Map<String,AttributeValue> startKey = new LinkedHashMap<>();
+			DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+			int attributes = data.readUnsignedByte();
+			for (int i = 0; i < attributes; i++) {
+				String name = data.readUTF();
+				if (data.readByte() == 'N')
+					startKey.put(name, AttributeValue.builder().n(data.readUTF()).build());
+				else
+					startKey.put(name, AttributeValue.builder().s(data.readUTF()).build());
+			}
+			return startKey;
+		} catch (IllegalArgumentException | IOException e) {
+			throw new BadRequestException("invalid cursor");
+		}
+	}
+
+	private byte[] sign(String scope, byte[] payload) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(secretKey);
+			mac.update(scope.getBytes(StandardCharsets.UTF_8));
+			mac.update((byte) 0);
+			return mac.doFinal(payload);
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException("can't sign cursor", e);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package net.curmudgeon.suds.controller.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ */
+public class BatchResponse<T> {
+	private List<T> found = new ArrayList<T>();
+	private List<String> missing = new ArrayList<String>();
+
+	public BatchResponse() {
+		super();
+	}
+
+	public List<T> getFound() {
+		return found;
+	}
+
+	public void setFound(List<T> found) {
+		this.found = found;
+	}
+
+	public List<String> getMissing() {
+		return missing;
+	}
+
+	public void setMissing(List<String> missing) {
+		this.missing = missing;
+	}
+}
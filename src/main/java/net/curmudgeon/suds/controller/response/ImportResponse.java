@@ -0,0 +1,97 @@
+package net.curmudgeon.suds.controller.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Outcome of a bulk import. Counts cover every non-blank line, and each line that
+ * wasn't saved is listed with its line number and why: rejected lines failed
+ * validation and were never written, failed lines were valid but their write
+ * didn't go through.
+ */
+public class ImportResponse {
+	private int received;
+	private int imported;
+	private List<LineResult> rejected = new ArrayList<LineResult>();
+	private List<LineResult> failed = new ArrayList<LineResult>();
+
+	public ImportResponse() {
+		super();
+	}
+
+	public int getReceived() {
+		return received;
+	}
+
+	public void setReceived(int received) {
+		this.received = received;
+	}
+
+	public int getImported() {
+		return imported;
+	}
+
+	public void setImported(int imported) {
+		this.imported = imported;
+	}
+
+	public List<LineResult> getRejected() {
+		return rejected;
+	}
+
+	public void setRejected(List<LineResult> rejected) {
+		this.rejected = rejected;
+	}
+
+	public List<LineResult> getFailed() {
+		return failed;
+	}
+
+	public void setFailed(List<LineResult> failed) {
+		this.failed = failed;
+	}
+
+	/**
+	 * One line that wasn't saved.
+	 */
+	public static class LineResult {
+		private int line;
+		private String reason;
+
+		public LineResult(int line, String reason) {
+			super();
+			this.line = line;
+			this.reason = reason;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public void setLine(int line) {
+			this.line = line;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+
+		public void setReason(String reason) {
+			this.reason = reason;
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package net.curmudgeon.suds.controller.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Response body that writes items out as a JSON array while a repository hands them
+ * over, so only the item being written is held in memory rather than the whole list.
+ */
+public class JsonArrayStream<T> implements StreamingResponseBody {
+	private ObjectMapper objectMapper;
+	private Consumer<Consumer<T>> source;
+
+	/**
+	 * @param object mapper used for each item
+	 * @param source that passes every item to the consumer it's given
+	 */
+	public JsonArrayStream(ObjectMapper objectMapper, Consumer<Consumer<T>> source) {
+		this.objectMapper = objectMapper;
+		this.source = source;
+	}
+
+	@Override
+	public void writeTo(OutputStream outputStream) throws IOException {
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+			
+			// Closing the generator must not finish the array for us. If the read fails
+			// partway the client should get broken JSON, not a short list that parses.
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+			generator.writeStartArray();
+			source.accept(item -> {
+				try {
+					generator.writeObject(item);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+			generator.writeEndArray();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+}
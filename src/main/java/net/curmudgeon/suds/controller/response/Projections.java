@@ -0,0 +1,82 @@
+package net.curmudgeon.suds.controller.response;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.curmudgeon.suds.controller.exception.BadRequestException;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Maps entities read with a projection to responses holding only the fields that
+ * were asked for. Entities from a projected read also carry the keys and sort
+ * fields the repository needed, and null for everything else, neither of which
+ * the caller asked to see.
+ */
+public final class Projections {
+	private static final TypeReference<LinkedHashMap<String,Object>> MAP_TYPE = new TypeReference<LinkedHashMap<String,Object>>() { };
+
+	private Projections() { }
+
+	/**
+	 * Clean up a fields request parameter, split on commas by Spring.
+	 * 
+	 * @param fields as given
+	 * @return distinct field names, trimmed
+	 * @throws BadRequestException when no field names are given
+	 */
+	public static Set<String> fields(List<String> fields) {
+		Set<String> cleaned = new LinkedHashSet<String>();
+		for (String field: fields) {
+			if (!field.trim().isEmpty())
+				cleaned.add(field.trim());
+		}
+		if (cleaned.isEmpty())
+			throw new BadRequestException("fields must name at least one field");
+		return cleaned;
+	}
+
+	/**
+	 * @param object mapper used for the field values
+	 * @param entity
+	 * @param fields to keep
+	 * @return fields by name, in entity property order
+	 */
+	public static Map<String,Object> project(ObjectMapper objectMapper, Object item, Collection<String> fields) {
+		Map<String,Object> projected = objectMapper.convertValue(item, MAP_TYPE);
+		projected.keySet().retainAll(fields);
+		return projected;
+	}
+
+	/**
+	 * @param object mapper used for the field values
+	 * @param entities
+	 * @param fields to keep
+	 * @return fields by name for each entity
+	 */
+	public static List<Map<String,Object>> project(ObjectMapper objectMapper, Collection<?> items, Collection<String> fields) {
+		List<Map<String,Object>> projected = new ArrayList<Map<String,Object>>();
+		items.forEach(item -> projected.add(project(objectMapper, item, fields)));
+		return projected;
+	}
+}
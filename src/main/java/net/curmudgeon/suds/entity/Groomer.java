@@ -5,8 +5,11 @@ import java.util.List;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
 
 /*
@@ -26,9 +29,15 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortK
  */
 @DynamoDbBean
 public class Groomer implements Comparable<Groomer> {
+	
+	// Sparse global secondary index, only v0 records carry the key.
+	public static final String CURRENT_INDEX = "CurrentGroomerIndex";
+	public static final String CURRENT = "CURRENT";
+	
 	private String groomerId;
 	private String version;
 	private Integer latestVersion;
+	private String currentRecord;
 	private String employeeNumber;
 	private String firstName;
 	private String lastName;
@@ -61,6 +70,16 @@ public class Groomer implements Comparable<Groomer> {
 		this.latestVersion = latestVersion;
 	}
 
+	@JsonIgnore
+	@DynamoDbSecondaryPartitionKey(indexNames = { CURRENT_INDEX })
+	public String getCurrentRecord() {
+		return currentRecord;
+	}
+
+	public void setCurrentRecord(String currentRecord) {
+		this.currentRecord = currentRecord;
+	}
+
 	public String getEmployeeNumber() {
 		return employeeNumber;
 	}
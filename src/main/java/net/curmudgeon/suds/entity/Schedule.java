@@ -7,6 +7,8 @@ import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondarySortKey;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortKey;
 
 /*
@@ -26,8 +28,19 @@ import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSortK
  */
 @DynamoDbBean
 public class Schedule implements Comparable<Schedule> {
+	
+	// Global secondary index keyed on the appointment day, sorted by appointment time.
+	public static final String DAY_INDEX = "AppointmentDayIndex";
+	
+	// Global secondary index keyed on the groomer, sorted by appointment time.
+	public static final String GROOMER_INDEX = "GroomerAppointmentIndex";
+	
+	// Global secondary index keyed on the customer, sorted by appointment time.
+	public static final String CUSTOMER_INDEX = "CustomerAppointmentIndex";
+	
 	private String scheduleId;
 	private LocalDateTime appointmentTime;
+	private String appointmentDay;
 	private String groomerId;
 	private String customerId;
 	private String petId;
@@ -42,6 +55,7 @@ public class Schedule implements Comparable<Schedule> {
 	}
 
 	@DynamoDbSortKey
+	@DynamoDbSecondarySortKey(indexNames = { DAY_INDEX, GROOMER_INDEX, CUSTOMER_INDEX })
 	public LocalDateTime getAppointmentTime() {
 		return appointmentTime;
 	}
@@ -50,6 +64,16 @@ public class Schedule implements Comparable<Schedule> {
 		this.appointmentTime = appointmentTime;
 	}
 
+	@DynamoDbSecondaryPartitionKey(indexNames = { DAY_INDEX })
+	public String getAppointmentDay() {
+		return appointmentDay;
+	}
+
+	public void setAppointmentDay(String appointmentDay) {
+		this.appointmentDay = appointmentDay;
+	}
+
+	@DynamoDbSecondaryPartitionKey(indexNames = { GROOMER_INDEX })
 	public String getGroomerId() {
 		return groomerId;
 	}
@@ -58,6 +82,7 @@ public class Schedule implements Comparable<Schedule> {
 		this.groomerId = groomerId;
 	}
 
+	@DynamoDbSecondaryPartitionKey(indexNames = { CUSTOMER_INDEX })
 	public String getCustomerId() {
 		return customerId;
 	}
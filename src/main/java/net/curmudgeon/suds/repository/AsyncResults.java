@@ -0,0 +1,76 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Helpers for collecting results from the async enhanced client's publishers.
+ */
+final class AsyncResults {
+
+	private AsyncResults() {}
+
+	/**
+	 * Collect every item from a publisher.
+	 * 
+	 * @param publisher
+	 * @return future completing with all items in publish order
+	 */
+	static <T> CompletableFuture<List<T>> collect(SdkPublisher<T> publisher) {
+		List<T> results = new ArrayList<T>();
+		return publisher.subscribe(results::add).thenApply(done -> results);
+	}
+
+	/**
+	 * Collect every item from a publisher and sort them.
+	 * 
+	 * @param publisher
+	 * @return future completing with all items sorted
+	 */
+	static <T extends Comparable<? super T>> CompletableFuture<List<T>> collectSorted(SdkPublisher<T> publisher) {
+		return collect(publisher).thenApply(results -> {
+			Collections.sort(results);
+			return results;
+		});
+	}
+
+	/**
+	 * Collect every item from a publisher of pages.
+	 * 
+	 * @param publisher
+	 * @return future completing with all items in page order
+	 */
+	static <T> CompletableFuture<List<T>> collectPages(SdkPublisher<Page<T>> publisher) {
+		List<T> results = new ArrayList<T>();
+		return publisher.subscribe(page -> results.addAll(page.items())).thenApply(done -> results);
+	}
+
+	/**
+	 * Take the first item from a publisher.
+	 * 
+	 * @param publisher
+	 * @return future completing with the first item, or null if there were none
+	 */
+	static <T> CompletableFuture<T> first(SdkPublisher<T> publisher) {
+		return collect(publisher.limit(1)).thenApply(results -> results.isEmpty() ? null : results.get(0));
+	}
+}
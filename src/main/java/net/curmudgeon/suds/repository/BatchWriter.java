@@ -0,0 +1,101 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Writes raw items with BatchWriteItem, in chunks of up to 25, retrying unprocessed
+ * items with exponential backoff. Raw items are used so one batch can hold different
+ * kinds of objects stored in the same table.
+ */
+public class BatchWriter {
+	private static final Logger log = LogManager.getLogger(BatchWriter.class);
+
+	// Maximum number of items DynamoDB accepts in a single BatchWriteItem call.
+	public static final int BATCH_WRITE_LIMIT = 25;
+
+	private static final int MAX_ATTEMPTS = 8;
+	private static final long BASE_BACKOFF_MILLIS = 25;
+	private static final long MAX_BACKOFF_MILLIS = 1000;
+
+	private DynamoDbClient dynamoDbClient;
+
+	public BatchWriter(DynamoDbClient dynamoDbClient) {
+		this.dynamoDbClient = dynamoDbClient;
+	}
+
+	/**
+	 * Put all items into a table. Items must have distinct keys within each chunk of 25.
+	 * 
+	 * @param table name
+	 * @param items as attribute maps
+	 */
+	public void putAll(String tableName, List<Map<String,AttributeValue>> items) {
+		for (int i = 0; i < items.size(); i += BATCH_WRITE_LIMIT) {
+			List<WriteRequest> writes = new ArrayList<WriteRequest>();
+			items.subList(i, Math.min(i + BATCH_WRITE_LIMIT, items.size()))
+					.forEach(item -> writes.add(WriteRequest.builder()
+							.putRequest(PutRequest.builder().item(item).build())
+							.build()));
+			write(Collections.singletonMap(tableName, writes));
+		}
+	}
+
+	/**
+	 * Send one batch, then keep resending whatever DynamoDB hands back as unprocessed.
+	 * 
+	 * @param write requests by table name
+	 */
+	private void write(Map<String,List<WriteRequest>> writes) {
+		Map<String,List<WriteRequest>> pending = writes;
+
+		for (int attempt = 1; ; attempt++) {
+			BatchWriteItemResponse response = dynamoDbClient.batchWriteItem(BatchWriteItemRequest.builder()
+					.requestItems(pending)
+					.build());
+
+			if (!response.hasUnprocessedItems() || response.unprocessedItems().isEmpty())
+				return;
+
+			pending = response.unprocessedItems();
+			int unprocessed = pending.values().stream().mapToInt(List::size).sum();
+			if (attempt >= MAX_ATTEMPTS)
+				throw new IllegalStateException("[" + unprocessed + "] items still unprocessed after " + attempt + " batch write attempts");
+
+			long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << (attempt - 1));
+			log.debug("retrying [" + unprocessed + "] unprocessed items in " + backoff + "ms");
+			try {
+				Thread.sleep(backoff);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted while retrying batch write", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,335 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.ExpiringCache;
+import net.curmudgeon.suds.util.PetKey;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Near-cache of single Parent and Pet records in front of another Customer Repository.
+ * Parents are keyed by customer id and pets by customer id plus pet id. Whole
+ * collection reads (all parents, parent with pets) still go to the underlying
+ * repository. Keys that weren't found are remembered for a short time in a separate
+ * cache, so repeated lookups of unknown phone numbers and pet names don't go back
+ * to DynamoDB. Cached objects are shared, so callers should treat them as read only.
+ */
+public class CachingCustomerRepository implements CustomerRepository {
+	private static final Logger log = LogManager.getLogger(CachingCustomerRepository.class);
+
+	private CustomerRepository customerRepository;
+	private ExpiringCache<String,Parent> parentCache;
+	private ExpiringCache<PetKey,Pet> petCache;
+	private ExpiringCache<String,Boolean> missingCache;
+
+	// Parent keys are customer ids, pet keys are encoded as customer id + pet id, so
+	// they can share one missing cache without colliding.
+	public CachingCustomerRepository(CustomerRepository customerRepository, ExpiringCache<String,Parent> parentCache,
+			ExpiringCache<PetKey,Pet> petCache, ExpiringCache<String,Boolean> missingCache) {
+		this.customerRepository = customerRepository;
+		this.parentCache = parentCache;
+		this.petCache = petCache;
+		this.missingCache = missingCache;
+	}
+
+	/**
+	 * Save through, then drop the cached parent (or missing marker) so the next read
+	 * sees the new record.
+	 * 
+	 * @param Parent
+	 */
+	@Override
+	public void saveParent(Parent parent) {
+		customerRepository.saveParent(parent);
+		parentCache.invalidate(parent.getCustomerId());
+		missingCache.invalidate(parent.getCustomerId());
+	}
+
+	/**
+	 * Save through, then drop the cached parent, pets and missing markers.
+	 * 
+	 * @param Parent with Pets
+	 * @param atomic, true to write everything in one transaction
+	 */
+	@Override
+	public void saveParentWithPets(Parent parent, boolean atomic) {
+		customerRepository.saveParentWithPets(parent, atomic);
+		invalidate(Collections.singletonList(parent), (parent.getPets() != null) ? parent.getPets() : Collections.emptyList());
+	}
+
+	/**
+	 * Save through, then drop the cached parents, pets and missing markers.
+	 * 
+	 * @param Parents
+	 * @param Pets
+	 */
+	@Override
+	public void saveParentsAndPets(List<Parent> parents, List<Pet> pets) {
+		customerRepository.saveParentsAndPets(parents, pets);
+		invalidate(parents, pets);
+	}
+
+	@Override
+	public Parent getParentByCustomerId(String customerId) {
+		long parentGeneration = parentCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+		Parent parent = parentCache.get(customerId);
+		if (parent == null && missingCache.get(customerId) == null) {
+			parent = customerRepository.getParentByCustomerId(customerId);
+			remember(parentCache, customerId, parent, parentGeneration, missingGeneration);
+		}
+
+		return parent;
+	}
+
+	@Override
+	public Parent getParentByPhoneNumber(String phoneNumber) {
+		return getParentByCustomerId(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId());
+	}
+
+	/**
+	 * Not cached, the pets would go stale with each pet save, but a customer known to
+	 * be missing is answered from the missing cache, and one found missing is remembered.
+	 * 
+	 * @param phoneNumber
+	 * @return Parent with Pets, or null
+	 */
+	@Override
+	public Parent getParentWithPets(String phoneNumber) {
+		String customerId = CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId();
+		long missingGeneration = missingCache.getGeneration();
+		if (missingCache.get(customerId) != null)
+			return null;
+		
+		Parent parent = customerRepository.getParentWithPets(phoneNumber);
+		if (parent == null)
+			missingCache.put(customerId, Boolean.TRUE, missingGeneration);
+		return parent;
+	}
+
+	/**
+	 * Serve what we can from the cache and look up the rest.
+	 * 
+	 * @param customer ids
+	 * @return matching Parents
+	 */
+	@Override
+	public List<Parent> getParentsByCustomerIds(Collection<String> customerIds) {
+		List<Parent> results = new ArrayList<Parent>();
+		List<String> missingIds = new ArrayList<String>();
+		long parentGeneration = parentCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+
+		for (String customerId: new LinkedHashSet<String>(customerIds)) {
+			Parent parent = parentCache.get(customerId);
+			if (parent != null)
+				results.add(parent);
+			else if (missingCache.get(customerId) == null)
+				missingIds.add(customerId);
+		}
+
+		int cached = results.size();
+		if (!missingIds.isEmpty()) {
+			Map<String,Parent> fetched = new HashMap<>();
+			customerRepository.getParentsByCustomerIds(missingIds).forEach(parent -> fetched.put(parent.getCustomerId(), parent));
+			missingIds.forEach(customerId -> remember(parentCache, customerId, fetched.get(customerId), parentGeneration, missingGeneration));
+			results.addAll(fetched.values());
+		}
+
+		log.debug("resolved [" + cached + "] parents from cache, fetched [" + missingIds.size() + "], " + parentCache);
+		return results;
+	}
+
+	@Override
+	public List<Parent> getParentsWithPets(Collection<String> customerIds) {
+		return customerRepository.getParentsWithPets(customerIds);
+	}
+
+	@Override
+	public List<Parent> getAllParents() {
+		return customerRepository.getAllParents();
+	}
+
+	@Override
+	public List<Parent> getAllParentsWithPets() {
+		return customerRepository.getAllParentsWithPets();
+	}
+
+	// Projected records are partial, so they're never cached.
+	@Override
+	public List<Parent> getAllParentsWithPets(Collection<String> fields) {
+		return customerRepository.getAllParentsWithPets(fields);
+	}
+
+	@Override
+	public void streamAllParentsWithPets(Consumer<Parent> consumer) {
+		customerRepository.streamAllParentsWithPets(consumer);
+	}
+
+	@Override
+	public PagedResult<Parent> getParentsWithPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		return customerRepository.getParentsWithPetsPage(limit, exclusiveStartKey);
+	}
+
+	/**
+	 * Save through, then drop the cached pet (or missing marker) so the next read
+	 * sees the new record.
+	 * 
+	 * @param Pet
+	 */
+	@Override
+	public void savePet(Pet pet) {
+		customerRepository.savePet(pet);
+		PetKey petKey = PetKey.of(pet.getCustomerId(), pet.getId());
+		petCache.invalidate(petKey);
+		missingCache.invalidate(petKey.toString());
+	}
+
+	@Override
+	public Pet getPetByCustomerIdAndPetId(String customerId, String petId) {
+		PetKey petKey = PetKey.of(customerId, petId);
+		long petGeneration = petCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+		Pet pet = petCache.get(petKey);
+		if (pet == null && missingCache.get(petKey.toString()) == null) {
+			pet = customerRepository.getPetByCustomerIdAndPetId(customerId, petId);
+			remember(petCache, petKey, pet, petGeneration, missingGeneration);
+		}
+
+		return pet;
+	}
+
+	@Override
+	public Pet getPetByPhoneNumberAndName(String phoneNumber, String name) {
+		PetKey petKey = PetKey.of(CustomerKey.fromPhoneNumber(phoneNumber), name);
+		return getPetByCustomerIdAndPetId(petKey.getCustomerId(), petKey.getPetId());
+	}
+
+	/**
+	 * Serve what we can from the cache and batch fetch the rest.
+	 * 
+	 * @param Pets containing the keys to retrieve
+	 * @return matching Pets
+	 */
+	@Override
+	public List<Pet> getPets(Collection<Pet> petKeys) {
+		List<Pet> results = new ArrayList<Pet>();
+		Map<PetKey,Pet> missingKeys = new LinkedHashMap<>();
+		Set<PetKey> seenKeys = new HashSet<>();
+		long petGeneration = petCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+
+		for (Pet petKey: petKeys) {
+			PetKey key = PetKey.of(petKey.getCustomerId(), petKey.getId());
+			if (!seenKeys.add(key))
+				continue;
+
+			Pet pet = petCache.get(key);
+			if (pet != null)
+				results.add(pet);
+			else if (missingCache.get(key.toString()) == null)
+				missingKeys.put(key, petKey);
+		}
+
+		int cached = results.size();
+		if (!missingKeys.isEmpty()) {
+			Map<PetKey,Pet> fetched = new HashMap<>();
+			customerRepository.getPets(missingKeys.values()).forEach(pet -> fetched.put(PetKey.of(pet.getCustomerId(), pet.getId()), pet));
+			missingKeys.keySet().forEach(key -> remember(petCache, key, fetched.get(key), petGeneration, missingGeneration));
+			results.addAll(fetched.values());
+		}
+
+		log.debug("resolved [" + cached + "] pets from cache, fetched [" + missingKeys.size() + "], " + petCache);
+		return results;
+	}
+
+	@Override
+	public List<Pet> getPetsForParent(String phoneNumber) {
+		return customerRepository.getPetsForParent(phoneNumber);
+	}
+
+	@Override
+	public List<Pet> getAllPets() {
+		return customerRepository.getAllPets();
+	}
+
+	@Override
+	public List<Pet> getAllPets(Collection<String> fields) {
+		return customerRepository.getAllPets(fields);
+	}
+
+	@Override
+	public void streamAllPets(Consumer<Pet> consumer) {
+		customerRepository.streamAllPets(consumer);
+	}
+
+	@Override
+	public PagedResult<Pet> getPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		return customerRepository.getPetsPage(limit, exclusiveStartKey);
+	}
+
+	/**
+	 * Cache a lookup result, or a missing marker when nothing was found, unless a save
+	 * invalidated the cache while the lookup was running.
+	 * 
+	 * @param cache for found records
+	 * @param key, its string form is used for the missing marker
+	 * @param record or null
+	 * @param generation of the record cache before the lookup
+	 * @param generation of the missing cache before the lookup
+	 */
+	private <K,T> void remember(ExpiringCache<K,T> cache, K key, T record, long cacheGeneration, long missingGeneration) {
+		if (record != null)
+			cache.put(key, record, cacheGeneration);
+		else
+			missingCache.put(key.toString(), Boolean.TRUE, missingGeneration);
+	}
+
+	/**
+	 * Drop cached entries and missing markers for saved records.
+	 * 
+	 * @param Parents
+	 * @param Pets
+	 */
+	private void invalidate(List<Parent> parents, List<Pet> pets) {
+		for (Parent parent: parents) {
+			parentCache.invalidate(parent.getCustomerId());
+			missingCache.invalidate(parent.getCustomerId());
+		}
+		for (Pet pet: pets) {
+			PetKey petKey = PetKey.of(pet.getCustomerId(), pet.getId());
+			petCache.invalidate(petKey);
+			missingCache.invalidate(petKey.toString());
+		}
+	}
+}
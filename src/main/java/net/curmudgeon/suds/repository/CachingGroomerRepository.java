@@ -0,0 +1,187 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.util.ExpiringCache;
+import net.curmudgeon.suds.util.GroomerKey;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Read-through cache of current (v0) Groomer records in front of another Groomer
+ * Repository, keyed by groomer id. Ids that weren't found are remembered for a short
+ * time in a separate cache, so repeated lookups of unknown employee numbers don't
+ * go back to DynamoDB. Cached Groomers are shared, so callers should treat them as
+ * read only.
+ */
+public class CachingGroomerRepository implements GroomerRepository {
+	private static final Logger log = LogManager.getLogger(CachingGroomerRepository.class);
+
+	private GroomerRepository groomerRepository;
+	private ExpiringCache<String,Groomer> groomerCache;
+	private ExpiringCache<String,Boolean> missingCache;
+
+	public CachingGroomerRepository(GroomerRepository groomerRepository, ExpiringCache<String,Groomer> groomerCache,
+			ExpiringCache<String,Boolean> missingCache) {
+		this.groomerRepository = groomerRepository;
+		this.groomerCache = groomerCache;
+		this.missingCache = missingCache;
+	}
+
+	/**
+	 * Save through to the underlying repository, then drop the cached record (or
+	 * missing marker) so the next read picks up the new version.
+	 * 
+	 * @param Groomer
+	 */
+	@Override
+	public void saveGroomer(Groomer groomer) {
+		groomerRepository.saveGroomer(groomer);
+		groomerCache.invalidate(groomer.getGroomerId());
+		missingCache.invalidate(groomer.getGroomerId());
+	}
+
+	@Override
+	public Groomer getGroomer(String groomerId) {
+		long groomerGeneration = groomerCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+		Groomer groomer = groomerCache.get(groomerId);
+		if (groomer == null && missingCache.get(groomerId) == null) {
+			groomer = groomerRepository.getGroomer(groomerId);
+			remember(groomerId, groomer, groomerGeneration, missingGeneration);
+		}
+
+		return groomer;
+	}
+
+	@Override
+	public Groomer getGroomerByEmployeeNumber(String employeeNumber) {
+		return getGroomer(GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId());
+	}
+
+	/**
+	 * Serve what we can from the cache and batch fetch the rest.
+	 * 
+	 * @param groomer ids
+	 * @return matching Groomers
+	 */
+	@Override
+	public List<Groomer> getGroomers(Collection<String> groomerIds) {
+		List<Groomer> results = new ArrayList<Groomer>();
+		List<String> missingIds = new ArrayList<String>();
+		long groomerGeneration = groomerCache.getGeneration();
+		long missingGeneration = missingCache.getGeneration();
+
+		for (String groomerId: new LinkedHashSet<String>(groomerIds)) {
+			Groomer groomer = groomerCache.get(groomerId);
+			if (groomer != null)
+				results.add(groomer);
+			else if (missingCache.get(groomerId) == null)
+				missingIds.add(groomerId);
+		}
+
+		int cached = results.size();
+		if (!missingIds.isEmpty()) {
+			Map<String,Groomer> fetched = new HashMap<>();
+			groomerRepository.getGroomers(missingIds).forEach(groomer -> fetched.put(groomer.getGroomerId(), groomer));
+			missingIds.forEach(groomerId -> remember(groomerId, fetched.get(groomerId), groomerGeneration, missingGeneration));
+			results.addAll(fetched.values());
+		}
+
+		log.debug("resolved [" + cached + "] groomers from cache, fetched [" + missingIds.size() + "], " + groomerCache);
+		return results;
+	}
+
+	/**
+	 * Always reads the index, since the cache may not hold every groomer, and
+	 * refreshes the cache with what it finds.
+	 * 
+	 * @return all current Groomers
+	 */
+	@Override
+	public List<Groomer> getAllGroomers() {
+		long generation = groomerCache.getGeneration();
+		List<Groomer> groomers = groomerRepository.getAllGroomers();
+		groomers.forEach(groomer -> groomerCache.put(groomer.getGroomerId(), groomer, generation));
+		return groomers;
+	}
+
+	/**
+	 * Read through without caching, projected records are partial.
+	 * 
+	 * @param fields to read
+	 * @return all Groomers
+	 */
+	@Override
+	public List<Groomer> getAllGroomers(Collection<String> fields) {
+		return (fields == null) ? getAllGroomers() : groomerRepository.getAllGroomers(fields);
+	}
+
+	/**
+	 * Stream through, caching each groomer on the way past.
+	 * 
+	 * @param consumer of Groomers
+	 */
+	@Override
+	public void streamAllGroomers(Consumer<Groomer> consumer) {
+		long generation = groomerCache.getGeneration();
+		groomerRepository.streamAllGroomers(groomer -> {
+			groomerCache.put(groomer.getGroomerId(), groomer, generation);
+			consumer.accept(groomer);
+		});
+	}
+
+	/**
+	 * Read the page through, caching each groomer on it.
+	 * 
+	 * @param most groomers to return
+	 * @param key to start after, null for the first page
+	 * @return page of Groomers
+	 */
+	@Override
+	public PagedResult<Groomer> getGroomersPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		long generation = groomerCache.getGeneration();
+		PagedResult<Groomer> page = groomerRepository.getGroomersPage(limit, exclusiveStartKey);
+		page.getItems().forEach(groomer -> groomerCache.put(groomer.getGroomerId(), groomer, generation));
+		return page;
+	}
+
+	/**
+	 * Cache a lookup result, or a missing marker when nothing was found, unless a save
+	 * invalidated the cache while the lookup was running.
+	 * 
+	 * @param groomer id
+	 * @param Groomer or null
+	 * @param generation of the groomer cache before the lookup
+	 * @param generation of the missing cache before the lookup
+	 */
+	private void remember(String groomerId, Groomer groomer, long groomerGeneration, long missingGeneration) {
+		if (groomer != null)
+			groomerCache.put(groomerId, groomer, groomerGeneration);
+		else
+			missingCache.put(groomerId, Boolean.TRUE, missingGeneration);
+	}
+}
@@ -0,0 +1,37 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Interface for the non-blocking Customer Repository. Reads only, customer saves go
+ * through the blocking repository so they pass through its caches.
+ */
+public interface CustomerAsyncRepository {
+
+	public CompletableFuture<Parent> getParentByCustomerId(String customerId);
+	public CompletableFuture<Parent> getParentByPhoneNumber(String phoneNumber);
+	public CompletableFuture<List<Parent>> getAllParents();
+	
+	public CompletableFuture<Pet> getPetByCustomerIdAndPetId(String customerId, String petId);
+	public CompletableFuture<Pet> getPetByPhoneNumberAndName(String phoneNumber, String name);
+	public CompletableFuture<List<Pet>> getPetsForParent(String phoneNumber);
+	public CompletableFuture<List<Pet>> getAllPets();
+}
@@ -0,0 +1,167 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.ParentKey;
+import net.curmudgeon.suds.util.PetKey;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Non-blocking, read-only implementation for the Customer Repository.
+ */
+public class CustomerAsyncRepositoryImpl implements CustomerAsyncRepository {
+
+	private DynamoDbAsyncTable<Parent> parentTable;
+	private DynamoDbAsyncTable<Pet> petTable;
+	
+	// Constructor creates table objects.
+	public CustomerAsyncRepositoryImpl(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+		parentTable = dynamoDbEnhancedAsyncClient.table("Customer", TableSchema.fromBean(Parent.class));
+		petTable = dynamoDbEnhancedAsyncClient.table("Customer", TableSchema.fromBean(Pet.class));
+	}
+
+	/**
+	 * Retrieve a parent customer by the partition key (assumes only one
+	 * parent per customer).
+	 * 
+	 * @param customer id
+	 * @return future completing with the matching Parent, or null
+	 */
+	@Override
+	public CompletableFuture<Parent> getParentByCustomerId(String customerId) {
+		QueryConditional parentCondition = QueryConditional.sortBeginsWith(Key.builder()
+				.partitionValue(customerId)
+				.sortValue(ParentKey.PREFIX)
+				.build());
+		
+		return AsyncResults.first(parentTable.query(parentCondition).items());
+	}
+
+	/**
+	 * Retrieve a parent by phone.
+	 * 
+	 * @param phone number
+	 * @return future completing with the matching Parent, or null
+	 */
+	@Override
+	public CompletableFuture<Parent> getParentByPhoneNumber(String phoneNumber) {
+		return getParentByCustomerId(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId());
+	}
+
+	/**
+	 * Get all parents defined in the Customer table.
+	 * 
+	 * @return future completing with all Parent objects, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Parent>> getAllParents() {
+		ScanEnhancedRequest parentRequest = ScanEnhancedRequest.builder()
+				.filterExpression(idPrefixExpression(ParentKey.PREFIX))
+				.build();
+		
+		return AsyncResults.collectSorted(parentTable.scan(parentRequest).items());
+	}
+
+	/**
+	 * Retrieves a specific pet by customer id and pet id.
+	 * 
+	 * @param customer id
+	 * @param pet id
+	 * @return future completing with the matching Pet, or null
+	 */
+	@Override
+	public CompletableFuture<Pet> getPetByCustomerIdAndPetId(String customerId, String petId) {
+		Key key = Key.builder()
+				.partitionValue(customerId)
+				.sortValue(petId)
+				.build();
+		
+		return petTable.getItem(key);
+	}
+
+	/**
+	 * Get pet by phone number and pet name.
+	 * 
+	 * @param phone number
+	 * @param pet name
+	 * @return future completing with the matching Pet, or null
+	 */
+	@Override
+	public CompletableFuture<Pet> getPetByPhoneNumberAndName(String phoneNumber, String name) {
+		PetKey petKey = PetKey.of(CustomerKey.fromPhoneNumber(phoneNumber), name);
+		return getPetByCustomerIdAndPetId(petKey.getCustomerId(), petKey.getPetId());
+	}
+
+	/**
+	 * Get all pets for a Parent by phone number.
+	 * 
+	 * @param phone number
+	 * @return future completing with the matching Pets, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Pet>> getPetsForParent(String phoneNumber) {
+		QueryConditional petCondition = QueryConditional.sortBeginsWith(Key.builder()
+				.partitionValue(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId())
+				.sortValue(PetKey.PREFIX)
+				.build());
+		
+		return AsyncResults.collectSorted(petTable.query(petCondition).items());
+	}
+
+	/**
+	 * Get all pets defined in the Customer table.
+	 * 
+	 * @return future completing with all Pet objects, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Pet>> getAllPets() {
+		ScanEnhancedRequest petRequest = ScanEnhancedRequest.builder()
+				.filterExpression(idPrefixExpression(PetKey.PREFIX))
+				.build();
+		
+		return AsyncResults.collectSorted(petTable.scan(petRequest).items());
+	}
+
+	/**
+	 * Build a filter expression matching sort keys that begin with a prefix.
+	 * 
+	 * @param prefix
+	 * @return filter expression
+	 */
+	private Expression idPrefixExpression(String prefix) {
+		Map<String,AttributeValue> values = new HashMap<>();
+		values.put(":idPrefix", AttributeValue.builder().s(prefix).build());
+		
+		return Expression.builder()
+				.expressionValues(values)
+				.expression("begins_with(id,:idPrefix)")
+				.build();
+	}
+}
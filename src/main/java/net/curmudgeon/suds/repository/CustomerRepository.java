@@ -1,9 +1,13 @@
 package net.curmudgeon.suds.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Pet;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -25,13 +29,26 @@ import net.curmudgeon.suds.entity.Pet;
 public interface CustomerRepository {
 
 	public void saveParent(Parent parent);
+	public void saveParentWithPets(Parent parent, boolean atomic);
+	public void saveParentsAndPets(List<Parent> parents, List<Pet> pets);
 	public Parent getParentByCustomerId(String customerId);
 	public Parent getParentByPhoneNumber(String phoneNumber);
+	public Parent getParentWithPets(String phoneNumber);
+	public List<Parent> getParentsByCustomerIds(Collection<String> customerIds);
+	public List<Parent> getParentsWithPets(Collection<String> customerIds);
 	public List<Parent> getAllParents();
+	public List<Parent> getAllParentsWithPets();
+	public List<Parent> getAllParentsWithPets(Collection<String> fields);
+	public void streamAllParentsWithPets(Consumer<Parent> consumer);
+	public PagedResult<Parent> getParentsWithPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey);
 	
 	public void savePet(Pet pet);
 	public Pet getPetByCustomerIdAndPetId(String customerId, String petId);
 	public Pet getPetByPhoneNumberAndName(String phoneNumber, String name);
+	public List<Pet> getPets(Collection<Pet> petKeys);
 	public List<Pet> getPetsForParent(String phoneNumber);
 	public List<Pet> getAllPets();
+	public List<Pet> getAllPets(Collection<String> fields);
+	public void streamAllPets(Consumer<Pet> consumer);
+	public PagedResult<Pet> getPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey);
 }
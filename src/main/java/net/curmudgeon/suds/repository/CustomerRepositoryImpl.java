@@ -1,24 +1,40 @@
 package net.curmudgeon.suds.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
-import org.apache.commons.lang3.StringUtils;
 
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Pet;
-import net.curmudgeon.suds.util.KeyUtils;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.ParentKey;
+import net.curmudgeon.suds.util.PetKey;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Expression;
 import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
 import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
 import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.TransactWriteItemsEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -38,14 +54,42 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
  * Implementation for the Customer Repository.
  */
 public class CustomerRepositoryImpl implements CustomerRepository {
+	
+	// Maximum number of keys DynamoDB accepts in a single BatchGetItem call.
+	private static final int BATCH_GET_LIMIT = 100;
+	
+	// Maximum number of items DynamoDB accepts in a single TransactWriteItems call.
+	private static final int TRANSACT_WRITE_LIMIT = 100;
+	
+	// Items read per customer asked for when paging, room for a parent and a few pets.
+	private static final int ITEMS_PER_CUSTOMER = 4;
+	
+	// Primary key attributes, shared by parents and pets.
+	private static final List<String> KEY_ATTRIBUTES = Arrays.asList("customerId", "id");
+	
+	// Attributes every projected read includes, the keys and the fields sorted on.
+	private static final List<String> CUSTOMER_ALWAYS_READ = Arrays.asList("customerId", "id", "lastName", "firstName", "name");
+	private static final List<String> PET_ALWAYS_READ = Arrays.asList("customerId", "id", "name");
 
+	private static final String TABLE_NAME = "Customer";
+
+	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+	private DynamoDbClient dynamoDbClient;
 	private DynamoDbTable<Parent> parentTable;
 	private DynamoDbTable<Pet> petTable;
+	private ParallelScanner parallelScanner;
+	private BatchWriter batchWriter;
 	
-	// Constructor creates table objects.
-	public CustomerRepositoryImpl(DynamoDbEnhancedClient dynamoDbEnhancedClient) {
-		parentTable = dynamoDbEnhancedClient.table("Customer", TableSchema.fromBean(Parent.class));
-		petTable = dynamoDbEnhancedClient.table("Customer", TableSchema.fromBean(Pet.class));
+	// Constructor creates table objects. The low level client is used for reads
+	// that return both parents and pets, which one bean schema can't map.
+	public CustomerRepositoryImpl(DynamoDbEnhancedClient dynamoDbEnhancedClient, DynamoDbClient dynamoDbClient,
+			ParallelScanner parallelScanner) {
+		this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
+		this.dynamoDbClient = dynamoDbClient;
+		this.parallelScanner = parallelScanner;
+		batchWriter = new BatchWriter(dynamoDbClient);
+		parentTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(Parent.class));
+		petTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(Pet.class));
 	}
 
 	/**
@@ -55,12 +99,69 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	 */
 	@Override
 	public void saveParent(Parent parent) {
+		assignKeys(parent);
+		parentTable.putItem(parent);
+	}
+
+	/**
+	 * Save out a Parent and all of its Pets together. Pets take the parent's phone
+	 * number. By default the items go out with BatchWriteItem, 25 at a time, with
+	 * unprocessed items retried. When atomic is set they're written in a single
+	 * transaction instead, so either everything is saved or nothing is.
+	 * 
+	 * @param Parent with Pets
+	 * @param atomic, true to write everything in one transaction
+	 */
+	@Override
+	public void saveParentWithPets(Parent parent, boolean atomic) {
+		assignKeys(parent);
 		
-		// Create DynamoDB partition key and sort key.
-		parent.setCustomerId("CUSTOMER#"+StringUtils.getDigits(parent.getPhoneNumber()));
-		parent.setId("PARENT#"+KeyUtils.formatStringForKey(parent.getFirstName())+KeyUtils.formatStringForKey(parent.getLastName()));
+		// A pet named twice would repeat a key, which DynamoDB rejects. Last one wins.
+		Map<String,Pet> pets = new LinkedHashMap<>();
+		if (parent.getPets() != null) {
+			for (Pet pet: parent.getPets()) {
+				pet.setPhoneNumber(parent.getPhoneNumber());
+				assignKeys(pet);
+				pets.put(pet.getId(), pet);
+			}
+		}
 		
-		parentTable.putItem(parent);
+		if (atomic) {
+			if (pets.size() + 1 > TRANSACT_WRITE_LIMIT)
+				throw new IllegalArgumentException("can't save [" + (pets.size() + 1) + "] items in one transaction, limit is " + TRANSACT_WRITE_LIMIT);
+			
+			TransactWriteItemsEnhancedRequest.Builder saveRequest = TransactWriteItemsEnhancedRequest.builder()
+					.addPutItem(parentTable, parent);
+			pets.values().forEach(pet -> saveRequest.addPutItem(petTable, pet));
+			dynamoDbEnhancedClient.transactWriteItems(saveRequest.build());
+		} else {
+			saveParentsAndPets(Collections.singletonList(parent), new ArrayList<Pet>(pets.values()));
+		}
+	}
+
+	/**
+	 * Save out any number of Parents and Pets with BatchWriteItem, 25 at a time, with
+	 * unprocessed items retried. Pets need their phone number set. Items repeating a
+	 * key are collapsed, the last one wins.
+	 * 
+	 * @param Parents
+	 * @param Pets
+	 */
+	@Override
+	public void saveParentsAndPets(List<Parent> parents, List<Pet> pets) {
+		
+		// Parents and pets share the table, so write raw items in the same batches.
+		Map<String,Map<String,AttributeValue>> items = new LinkedHashMap<>();
+		for (Parent parent: parents) {
+			assignKeys(parent);
+			items.put(parent.getCustomerId() + parent.getId(), parentTable.tableSchema().itemToMap(parent, true));
+		}
+		for (Pet pet: pets) {
+			assignKeys(pet);
+			items.put(pet.getCustomerId() + pet.getId(), petTable.tableSchema().itemToMap(pet, true));
+		}
+		
+		batchWriter.putAll(TABLE_NAME, new ArrayList<Map<String,AttributeValue>>(items.values()));
 	}
 
 
@@ -75,25 +176,14 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	public Parent getParentByCustomerId(String customerId) {
 		Parent parent = null;
 		
-		// Build attributes including full Customer ID and a string containing
-		// the word "PARENT" for matching just parents.
-		AttributeValue attrCustomerId = AttributeValue.builder().s(customerId).build();
-		AttributeValue attrId = AttributeValue.builder().s("PARENT").build();
-
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":customerId", attrCustomerId);
-		values.put(":parentIdPrefix", attrId);
-		
-		// Build expression. We're looking for a specific Customer ID partition key
-		// and any matching IDs that start with "PARENT".
-		Expression parentExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("customerId = :customerId and begins_with(id,:parentIdPrefix)")
-				.build();
+		// Query the customer's item collection for sort keys that start with
+		// "PARENT#", so only this customer's items are read.
+		QueryConditional parentCondition = QueryConditional.sortBeginsWith(Key.builder()
+				.partitionValue(customerId)
+				.sortValue(ParentKey.PREFIX)
+				.build());
 		
-		// Scan table for results.
-		ScanEnhancedRequest parentRequest = ScanEnhancedRequest.builder().filterExpression(parentExpression).build();
-		PageIterable<Parent> parentResults = parentTable.scan(parentRequest);
+		PageIterable<Parent> parentResults = parentTable.query(parentCondition);
 		
 		// Should only be one, and it should throw error if more than one is found but doesn't yet.
 		if (parentResults.items().iterator().hasNext())
@@ -110,7 +200,52 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	 */
 	@Override
 	public Parent getParentByPhoneNumber(String phoneNumber) {
-		return getParentByCustomerId("CUSTOMER#"+StringUtils.getDigits(phoneNumber));
+		return getParentByCustomerId(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId());
+	}
+
+	/**
+	 * Retrieve a parent by phone number along with all of its pets. Parents and pets
+	 * share the customer partition, so a single query over the item collection
+	 * returns both and the items are routed by their sort key prefix.
+	 * 
+	 * @param phone number
+	 * @return matching Parent with Pets populated
+	 */
+	@Override
+	public Parent getParentWithPets(String phoneNumber) {
+		List<Parent> results = groupCustomerItems(queryCustomerItems(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId()));
+		return results.isEmpty() ? null : results.get(0);
+	}
+
+	/**
+	 * Retrieve the parents for a set of customer ids along with their pets. The parent
+	 * sort key can't be derived from the customer id, so BatchGetItem can't address
+	 * it; instead each customer's item collection is queried, side by side on the
+	 * scan executor.
+	 * 
+	 * @param customer ids
+	 * @return matching Parents with Pets populated
+	 */
+	@Override
+	public List<Parent> getParentsWithPets(Collection<String> customerIds) {
+		return groupCustomerItems(parallelScanner.queryAll(new ArrayList<String>(new LinkedHashSet<String>(customerIds)),
+				this::queryCustomerItems));
+	}
+
+	/**
+	 * Retrieve the parents for a set of customer ids. The parent sort key can't be
+	 * derived from the customer id, so this runs one parent query per distinct
+	 * customer rather than a BatchGetItem, side by side on the scan executor.
+	 * 
+	 * @param customer ids
+	 * @return matching Parents
+	 */
+	@Override
+	public List<Parent> getParentsByCustomerIds(Collection<String> customerIds) {
+		return parallelScanner.queryAll(new ArrayList<String>(new LinkedHashSet<String>(customerIds)), customerId -> {
+			Parent parent = getParentByCustomerId(customerId);
+			return (parent != null) ? Collections.singletonList(parent) : Collections.<Parent>emptyList();
+		});
 	}
 
 	/**
@@ -121,29 +256,150 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	@Override
 	public List<Parent> getAllParents() {
 		
-		// Build an attribute with just the word "PARENT".
-		AttributeValue attr = AttributeValue.builder().s("PARENT").build();
+		// Build an attribute with the parent sort key prefix.
+		AttributeValue attr = AttributeValue.builder().s(ParentKey.PREFIX).build();
 		
 		Map<String,AttributeValue> values = new HashMap<>();
 		values.put(":parentIdPrefix", attr);
 		
-		// Build expression. We're looking for all sort keys that begin with "PARENT".
+		// Build expression. We're looking for all sort keys that begin with "PARENT#".
 		Expression parentExpression = Expression.builder()
 				.expressionValues(values)
 				.expression("begins_with(id,:parentIdPrefix)")
 				.build();
 		
-		// Scan table for results.
-		ScanEnhancedRequest parentRequest = ScanEnhancedRequest.builder().filterExpression(parentExpression).build();
-		PageIterable<Parent> parentResults = parentTable.scan(parentRequest);
+		// Scan table for results, split into segments when configured.
+		List<Parent> results = parallelScanner.scan((segment, totalSegments) -> parentTable.scan(
+				ScanEnhancedRequest.builder()
+						.filterExpression(parentExpression)
+						.segment(segment)
+						.totalSegments(totalSegments)
+						.build()).items());
 		
-		// Convert and return results.
-		List<Parent> results = new ArrayList<Parent>();
-		parentResults.items().forEach(results::add);
+		// Sort and return results.
 		Collections.sort(results);
 		return results;
 	}
 
+	/**
+	 * Get all parents defined in the Customer table with their pets populated. Reads
+	 * the table with a single (possibly segmented) scan and groups the pets under
+	 * their parents in one pass.
+	 * 
+	 * @return all Parent objects with Pets populated
+	 */
+	@Override
+	public List<Parent> getAllParentsWithPets() {
+		return getAllParentsWithPets(null);
+	}
+
+	/**
+	 * Get all parents with their pets populated, reading only the requested fields
+	 * (plus the keys and names, which grouping and sorting need). Fields can be any
+	 * parent or pet attribute and apply to both.
+	 * 
+	 * @param fields to read, null for whole items
+	 * @return all Parent objects with Pets populated
+	 */
+	@Override
+	public List<Parent> getAllParentsWithPets(Collection<String> fields) {
+		ScanRequest.Builder scanRequest = ScanRequest.builder().tableName(TABLE_NAME);
+		if (fields != null) {
+			Set<String> knownAttributes = new HashSet<String>(parentTable.tableSchema().attributeNames());
+			knownAttributes.addAll(petTable.tableSchema().attributeNames());
+			
+			Map<String,String> names = new HashMap<>();
+			scanRequest.projectionExpression(Projection.expression(Projection.of(knownAttributes, fields, CUSTOMER_ALWAYS_READ), names))
+					.expressionAttributeNames(names);
+		}
+		
+		ScanRequest customerRequest = scanRequest.build();
+		return groupCustomerItems(parallelScanner.scan((segment, totalSegments) -> dynamoDbClient.scanPaginator(
+				customerRequest.toBuilder()
+						.segment(segment)
+						.totalSegments(totalSegments)
+						.build()).items()));
+	}
+
+	/**
+	 * Hand every parent in the Customer table, with its pets, to a consumer as the scan
+	 * pages arrive, without collecting the table in memory. A scan returns each item
+	 * collection together in sort key order, the parent ahead of its pets, so a parent
+	 * is complete once the next customer starts. Parents come in table order, not
+	 * sorted, from one unsplit scan.
+	 * 
+	 * @param consumer of Parents with Pets populated
+	 */
+	@Override
+	public void streamAllParentsWithPets(Consumer<Parent> consumer) {
+		Parent current = null;
+		
+		for (Map<String,AttributeValue> item: dynamoDbClient.scanPaginator(ScanRequest.builder().tableName(TABLE_NAME).build()).items()) {
+			String customerId = item.get("customerId").s();
+			String id = item.get("id").s();
+			
+			if (current != null && !customerId.equals(current.getCustomerId())) {
+				Collections.sort(current.getPets());
+				consumer.accept(current);
+				current = null;
+			}
+			
+			// Pets without a parent are dropped.
+			if (id.startsWith(ParentKey.PREFIX) && current == null) {
+				current = parentTable.tableSchema().mapToItem(item);
+				current.setPets(new ArrayList<Pet>());
+			} else if (id.startsWith(PetKey.PREFIX) && current != null) {
+				current.getPets().add(petTable.tableSchema().mapToItem(item));
+			}
+		}
+		
+		if (current != null) {
+			Collections.sort(current.getPets());
+			consumer.accept(current);
+		}
+	}
+
+	/**
+	 * Get a page of parents with their pets populated. A page holds up to limit item
+	 * collections, so a customer is never split across pages. The scan is read until
+	 * the next customer after the last one kept starts, and the next page resumes
+	 * after the last item kept.
+	 * 
+	 * @param most customers to return
+	 * @param key to start after, null for the first page
+	 * @return page of Parents with Pets populated
+	 */
+	@Override
+	public PagedResult<Parent> getParentsWithPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		List<Map<String,AttributeValue>> items = new ArrayList<>();
+		Map<String,AttributeValue> startKey = exclusiveStartKey;
+		String customerId = null;
+		int customers = 0;
+		
+		while (true) {
+			ScanResponse response = dynamoDbClient.scan(ScanRequest.builder()
+					.tableName(TABLE_NAME)
+					.limit(limit * ITEMS_PER_CUSTOMER)
+					.exclusiveStartKey(startKey)
+					.build());
+			
+			for (Map<String,AttributeValue> item: response.items()) {
+				String itemCustomerId = item.get("customerId").s();
+				if (!itemCustomerId.equals(customerId)) {
+					if (customers == limit)
+						return new PagedResult<Parent>(groupCustomerItems(items), itemKey(items.get(items.size() - 1)));
+					customerId = itemCustomerId;
+					customers++;
+				}
+				items.add(item);
+			}
+			
+			if (!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty())
+				return new PagedResult<Parent>(groupCustomerItems(items), null);
+			startKey = response.lastEvaluatedKey();
+		}
+	}
+
 	/**
 	 * Save pet object.
 	 * 
@@ -151,11 +407,7 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	 */
 	@Override
 	public void savePet(Pet pet) {
-		
-		// Create DynamoDB partition key and sort key.
-		pet.setCustomerId("CUSTOMER#"+StringUtils.getDigits(pet.getPhoneNumber()));
-		pet.setId("PET#"+KeyUtils.formatStringForKey(pet.getName()));
-		
+		assignKeys(pet);
 		petTable.putItem(pet);
 	}
 
@@ -187,9 +439,42 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	 */
 	@Override
 	public Pet getPetByPhoneNumberAndName(String phoneNumber, String name) {
-		return getPetByCustomerIdAndPetId(
-				"CUSTOMER#"+StringUtils.getDigits(phoneNumber),
-				"PET#"+KeyUtils.formatStringForKey(name));
+		PetKey petKey = PetKey.of(CustomerKey.fromPhoneNumber(phoneNumber), name);
+		return getPetByCustomerIdAndPetId(petKey.getCustomerId(), petKey.getPetId());
+	}
+
+	/**
+	 * Retrieve a set of pets using BatchGetItem, in chunks of up to 100 keys. Only the
+	 * customer id and id of each key Pet need to be populated. Keys without a matching
+	 * pet are left out of the results.
+	 * 
+	 * @param Pets containing the keys to retrieve
+	 * @return matching Pets
+	 */
+	@Override
+	public List<Pet> getPets(Collection<Pet> petKeys) {
+		List<Pet> results = new ArrayList<Pet>();
+		
+		// Drop duplicate keys, DynamoDB rejects a batch that repeats one.
+		Map<PetKey,Key> distinctKeys = new LinkedHashMap<>();
+		petKeys.forEach(pet -> distinctKeys.putIfAbsent(PetKey.of(pet.getCustomerId(), pet.getId()), Key.builder()
+				.partitionValue(pet.getCustomerId())
+				.sortValue(pet.getId())
+				.build()));
+		List<Key> keys = new ArrayList<Key>(distinctKeys.values());
+		
+		for (int i = 0; i < keys.size(); i += BATCH_GET_LIMIT) {
+			ReadBatch.Builder<Pet> readBatch = ReadBatch.builder(Pet.class).mappedTableResource(petTable);
+			keys.subList(i, Math.min(i + BATCH_GET_LIMIT, keys.size())).forEach(readBatch::addGetItem);
+			
+			// The result pages follow any unprocessed keys until the batch is complete.
+			BatchGetItemEnhancedRequest petRequest = BatchGetItemEnhancedRequest.builder()
+					.readBatches(readBatch.build())
+					.build();
+			dynamoDbEnhancedClient.batchGetItem(petRequest).resultsForTable(petTable).forEach(results::add);
+		}
+		
+		return results;
 	}
 
 	/**
@@ -201,25 +486,14 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	@Override
 	public List<Pet> getPetsForParent(String phoneNumber) {
 		
-		// Build attributes including full Customer ID and a string containing
-		// the word "PET" for matching just the pets.
-		AttributeValue attrCustomerId = AttributeValue.builder().s("CUSTOMER#"+StringUtils.getDigits(phoneNumber)).build();
-		AttributeValue attrId = AttributeValue.builder().s("PET").build();
-
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":customerId", attrCustomerId);
-		values.put(":petIdPrefix", attrId);
-		
-		// Build expression. We're looking for a specific Customer ID partition key
-		// and any matching IDs that start with "PET".
-		Expression petExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("customerId = :customerId and begins_with(id,:petIdPrefix)")
-				.build();
+		// Query the customer's item collection for sort keys that start with
+		// "PET#", so only this customer's items are read.
+		QueryConditional petCondition = QueryConditional.sortBeginsWith(Key.builder()
+				.partitionValue(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId())
+				.sortValue(PetKey.PREFIX)
+				.build());
 		
-		// Scan table for results.
-		ScanEnhancedRequest petRequest = ScanEnhancedRequest.builder().filterExpression(petExpression).build();
-		PageIterable<Pet> petResults = petTable.scan(petRequest);
+		PageIterable<Pet> petResults = petTable.query(petCondition);
 		
 		// Convert and return results.
 		List<Pet> results = new ArrayList<Pet>();
@@ -235,27 +509,159 @@ public class CustomerRepositoryImpl implements CustomerRepository {
 	 */
 	@Override
 	public List<Pet> getAllPets() {
+		return getAllPets(null);
+	}
+
+	/**
+	 * Get all pets, reading only the requested fields (plus the keys and name).
+	 * 
+	 * @param fields to read, null for whole items
+	 * @return all matching Pet objects
+	 */
+	@Override
+	public List<Pet> getAllPets(Collection<String> fields) {
+		ScanEnhancedRequest.Builder scanRequest = ScanEnhancedRequest.builder().filterExpression(petFilter());
+		if (fields != null)
+			scanRequest.attributesToProject(Projection.of(petTable.tableSchema().attributeNames(), fields, PET_ALWAYS_READ));
+		ScanEnhancedRequest petRequest = scanRequest.build();
 		
-		// Build an attribute with just the word "PET".
-		AttributeValue attr = AttributeValue.builder().s("PET").build();
+		// Scan table for results, split into segments when configured.
+		List<Pet> results = parallelScanner.scan((segment, totalSegments) -> petTable.scan(
+				petRequest.toBuilder()
+						.segment(segment)
+						.totalSegments(totalSegments)
+						.build()).items());
 		
+		// Sort and return results.
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Hand every pet in the Customer table to a consumer as the scan pages arrive,
+	 * without collecting them first. Pets come in table order, not sorted.
+	 * 
+	 * @param consumer of Pets
+	 */
+	@Override
+	public void streamAllPets(Consumer<Pet> consumer) {
+		petTable.scan(ScanEnhancedRequest.builder()
+				.filterExpression(petFilter())
+				.build()).items().forEach(consumer);
+	}
+
+	/**
+	 * Get a page of pets, in table order.
+	 * 
+	 * @param most pets to return
+	 * @param key to start after, null for the first page
+	 * @return page of Pets
+	 */
+	@Override
+	public PagedResult<Pet> getPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		return PagedResult.take(petTable.scan(ScanEnhancedRequest.builder()
+				.filterExpression(petFilter())
+				.limit(limit)
+				.exclusiveStartKey(exclusiveStartKey)
+				.build()), limit, petTable.tableSchema(), KEY_ATTRIBUTES);
+	}
+
+	/**
+	 * Pull the primary key out of a raw item.
+	 * 
+	 * @param raw item
+	 * @return key attributes
+	 */
+	private Map<String,AttributeValue> itemKey(Map<String,AttributeValue> item) {
+		Map<String,AttributeValue> key = new HashMap<>();
+		KEY_ATTRIBUTES.forEach(name -> key.put(name, item.get(name)));
+		return key;
+	}
+
+	/**
+	 * Build a filter for items whose sort key begins with "PET#".
+	 * 
+	 * @return pet filter expression
+	 */
+	private Expression petFilter() {
 		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":petIdPrefix", attr);
+		values.put(":petIdPrefix", AttributeValue.builder().s(PetKey.PREFIX).build());
 		
-		// Build expression. We're looking for all sort keys that begin with "PET".
-		Expression petExpression = Expression.builder()
+		return Expression.builder()
 				.expressionValues(values)
 				.expression("begins_with(id,:petIdPrefix)")
 				.build();
+	}
+
+	/**
+	 * Query the whole item collection for a customer, parent and pets together.
+	 * 
+	 * @param customer id
+	 * @return raw items
+	 */
+	private Iterable<Map<String,AttributeValue>> queryCustomerItems(String customerId) {
+		Map<String,AttributeValue> values = new HashMap<>();
+		values.put(":customerId", AttributeValue.builder().s(customerId).build());
 		
-		// Scan table for results.
-		ScanEnhancedRequest petRequest = ScanEnhancedRequest.builder().filterExpression(petExpression).build();
-		PageIterable<Pet> petResults = petTable.scan(petRequest);
+		QueryRequest customerRequest = QueryRequest.builder()
+				.tableName(TABLE_NAME)
+				.keyConditionExpression("customerId = :customerId")
+				.expressionAttributeValues(values)
+				.build();
 		
-		// Convert and return results.
-		List<Pet> results = new ArrayList<Pet>();
-		petResults.items().forEach(results::add);
-		Collections.sort(results);;
+		return dynamoDbClient.queryPaginator(customerRequest).items();
+	}
+
+	/**
+	 * Group raw Customer table items into parents with their pets, routing each item by
+	 * its sort key prefix. Pets without a parent are dropped.
+	 * 
+	 * @param raw items
+	 * @return sorted Parents with sorted Pets populated
+	 */
+	private List<Parent> groupCustomerItems(Iterable<Map<String,AttributeValue>> items) {
+		Map<String,Parent> parents = new LinkedHashMap<>();
+		Map<String,List<Pet>> pets = new HashMap<>();
+		
+		for (Map<String,AttributeValue> item: items) {
+			String customerId = item.get("customerId").s();
+			String id = item.get("id").s();
+			if (id.startsWith(ParentKey.PREFIX)) {
+				parents.putIfAbsent(customerId, parentTable.tableSchema().mapToItem(item));
+			} else if (id.startsWith(PetKey.PREFIX)) {
+				pets.computeIfAbsent(customerId, key -> new ArrayList<Pet>()).add(petTable.tableSchema().mapToItem(item));
+			}
+		}
+		
+		List<Parent> results = new ArrayList<Parent>(parents.values());
+		for (Parent parent: results) {
+			List<Pet> parentPets = pets.getOrDefault(parent.getCustomerId(), new ArrayList<Pet>());
+			Collections.sort(parentPets);
+			parent.setPets(parentPets);
+		}
+		Collections.sort(results);
 		return results;
 	}
+
+	/**
+	 * Create DynamoDB partition key and sort key for a Parent.
+	 * 
+	 * @param Parent
+	 */
+	static void assignKeys(Parent parent) {
+		ParentKey parentKey = ParentKey.of(CustomerKey.fromPhoneNumber(parent.getPhoneNumber()), parent.getFirstName(), parent.getLastName());
+		parent.setCustomerId(parentKey.getCustomerId());
+		parent.setId(parentKey.getId());
+	}
+
+	/**
+	 * Create DynamoDB partition key and sort key for a Pet.
+	 * 
+	 * @param Pet
+	 */
+	static void assignKeys(Pet pet) {
+		PetKey petKey = PetKey.of(CustomerKey.fromPhoneNumber(pet.getPhoneNumber()), pet.getName());
+		pet.setCustomerId(petKey.getCustomerId());
+		pet.setId(petKey.getPetId());
+	}
 }
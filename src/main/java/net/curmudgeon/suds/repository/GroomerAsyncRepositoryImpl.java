@@ -0,0 +1,89 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.util.GroomerKey;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Non-blocking, read-only implementation for the Groomer Repository.
+ */
+public class GroomerAsyncRepositoryImpl implements GroomerAsyncRepository {
+	private DynamoDbAsyncTable<Groomer> groomerTable;
+	private DynamoDbAsyncIndex<Groomer> currentIndex;
+	
+	// Constructor creates table and index objects.
+	public GroomerAsyncRepositoryImpl(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+		groomerTable = dynamoDbEnhancedAsyncClient.table("Groomer", TableSchema.fromBean(Groomer.class));
+		currentIndex = groomerTable.index(Groomer.CURRENT_INDEX);
+	}
+
+	/**
+	 * Retrieve groomer by groomer id. Reads the "v0" record directly by key.
+	 * 
+	 * @param groomer id
+	 * @return future completing with the matching Groomer, or null
+	 */
+	@Override
+	public CompletableFuture<Groomer> getGroomer(String groomerId) {
+		Key key = Key.builder()
+				.partitionValue(groomerId)
+				.sortValue(GroomerKey.CURRENT_VERSION)
+				.build();
+		
+		return groomerTable.getItem(key);
+	}
+
+	/**
+	 * Get a groomer by employee number. This returns the v0 record.
+	 * 
+	 * @param employee number
+	 * @return future completing with the matching Groomer, or null
+	 */
+	@Override
+	public CompletableFuture<Groomer> getGroomerByEmployeeNumber(String employeeNumber) {
+		return getGroomer(GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId());
+	}
+
+	/**
+	 * Returns a list of all active groomers from the sparse current index.
+	 * 
+	 * @return future completing with all v0 Groomers, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Groomer>> getAllGroomers() {
+		QueryEnhancedRequest groomerRequest = QueryEnhancedRequest.builder()
+				.queryConditional(QueryConditional.keyEqualTo(Key.builder()
+						.partitionValue(Groomer.CURRENT)
+						.build()))
+				.build();
+		
+		return AsyncResults.collectPages(currentIndex.query(groomerRequest)).thenApply(results -> {
+			Collections.sort(results);
+			return results;
+		});
+	}
+}
@@ -1,8 +1,12 @@
 package net.curmudgeon.suds.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import net.curmudgeon.suds.entity.Groomer;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -26,5 +30,9 @@ public interface GroomerRepository {
 	public void saveGroomer(Groomer groomer);
 	public Groomer getGroomer(String groomerId);
 	public Groomer getGroomerByEmployeeNumber(String employeeNumber);
+	public List<Groomer> getGroomers(Collection<String> groomerIds);
 	public List<Groomer> getAllGroomers();
+	public List<Groomer> getAllGroomers(Collection<String> fields);
+	public void streamAllGroomers(Consumer<Groomer> consumer);
+	public PagedResult<Groomer> getGroomersPage(int limit, Map<String,AttributeValue> exclusiveStartKey);
 }
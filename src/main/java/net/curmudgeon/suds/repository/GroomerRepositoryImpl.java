@@ -1,19 +1,39 @@
 package net.curmudgeon.suds.repository;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.util.GroomerKey;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
-import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
 import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.TransactWriteItemsEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -33,55 +53,185 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
  * Implementation for the Groomer Repository.
  */
 public class GroomerRepositoryImpl implements GroomerRepository {
+	
+	private static final Logger log = LogManager.getLogger(GroomerRepositoryImpl.class);
+	
+	// Maximum number of keys DynamoDB accepts in a single BatchGetItem call.
+	private static final int BATCH_GET_LIMIT = 100;
+	
+	// Times a save is tried when it races with another save of the same groomer.
+	private static final int MAX_SAVE_ATTEMPTS = 3;
+	
+	// Upper bound in milliseconds of the random pause before the first retry, doubled for each one after.
+	private static final long SAVE_BACKOFF_MILLIS = 20;
+	
+	// Key attributes of a current index item, index key first.
+	private static final List<String> CURRENT_INDEX_KEY = Arrays.asList("currentRecord", "groomerId", "version");
+	
+	// Attributes every projected read includes, the keys and the fields sorted on.
+	private static final List<String> GROOMER_ALWAYS_READ = Arrays.asList("groomerId", "version", "lastName", "firstName");
+	
+	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
 	private DynamoDbTable<Groomer> groomerTable;
+	private DynamoDbIndex<Groomer> currentIndex;
 	
-	// Constructor creates table object.
+	// Constructor creates table and index objects.
 	public GroomerRepositoryImpl(DynamoDbEnhancedClient dynamoDbEnhancedClient) {
+		this.dynamoDbEnhancedClient = dynamoDbEnhancedClient;
 		groomerTable = dynamoDbEnhancedClient.table("Groomer", TableSchema.fromBean(Groomer.class));
+		currentIndex = groomerTable.index(Groomer.CURRENT_INDEX);
 	}
 
 	/**
 	 * Save out a Groomer object. Groomer information is versioned. Used Amazon's suggested approach
 	 * of each item having a "v0" record that contains the latest and greatest information, while saving
-	 * out "vN" records every time it's updated.
+	 * out "vN" records every time it's updated. Only the v0 record carries the current index key.
+	 * 
+	 * The vN insert and the v0 update are written in one transaction, conditional on the v0 record
+	 * still holding the latest version we read (or not existing yet for a new groomer). If another
+	 * save gets in first the transaction is cancelled, and we pause briefly, re-read and try again.
+	 * Each attempt is a strongly consistent read followed by the transaction, two round trips.
 	 * 
 	 * @param Groomer
 	 */
 	@Override
 	public void saveGroomer(Groomer groomer) {
 		
-		String groomerId = "GROOMER#" + groomer.getEmployeeNumber();
+		String groomerId = GroomerKey.fromEmployeeNumber(groomer.getEmployeeNumber()).getGroomerId();
+		groomer.setGroomerId(groomerId);
 		
-		// Does groomer already exist?
-		Groomer existingGroomer = getGroomerByEmployeeNumber(groomer.getEmployeeNumber());
-		if (existingGroomer != null) {
-
-			// Create new versioned record.
-			Integer newVersion = existingGroomer.getLatestVersion() + 1;
-			groomer.setGroomerId(groomerId);
-			groomer.setLatestVersion(null);
-			groomer.setVersion("v" + newVersion);
-			groomerTable.putItem(groomer);
+		for (int attempt = 1; ; attempt++) {
 			
-			// Replace the v0 record.
-			groomer.setVersion("v0");
-			groomer.setLatestVersion(newVersion);
-			groomerTable.putItem(groomer);
+			// Does groomer already exist?
+			Groomer existingGroomer = readCurrent(groomerId);
+			Integer expectedVersion = (existingGroomer != null) ? existingGroomer.getLatestVersion() : null;
+			int newVersion = (expectedVersion != null) ? expectedVersion + 1 : 1;
 			
+			try {
+				writeVersion(groomer, expectedVersion, newVersion);
+				break;
+			} catch (TransactionCanceledException e) {
+				if (attempt >= MAX_SAVE_ATTEMPTS || !isConflict(e))
+					throw e;
+				log.debug("groomer [" + groomerId + "] changed during save, retrying (attempt " + attempt + ")");
+				backOff(attempt);
+			}
+		}
+		
+		// Leave the caller's object looking like the v0 record.
+		groomer.setVersion(GroomerKey.CURRENT_VERSION);
+		groomer.setCurrentRecord(Groomer.CURRENT);
+	}
+
+	/**
+	 * Write the new vN record and replace the v0 record in one transaction.
+	 * 
+	 * @param Groomer with the groomer id set
+	 * @param latest version the v0 record is expected to hold, null if it shouldn't exist
+	 * @param version number to write
+	 */
+	private void writeVersion(Groomer groomer, Integer expectedVersion, int newVersion) {
+		
+		// Both writes are built from copies, the request only maps them when it's sent.
+		Groomer versionRecord = copy(groomer);
+		versionRecord.setVersion(GroomerKey.version(newVersion));
+		versionRecord.setLatestVersion(null);
+		versionRecord.setCurrentRecord(null);
+		
+		Groomer currentRecord = copy(groomer);
+		currentRecord.setVersion(GroomerKey.CURRENT_VERSION);
+		currentRecord.setLatestVersion(newVersion);
+		currentRecord.setCurrentRecord(Groomer.CURRENT);
+		
+		// The history record must be new, and v0 must be unchanged since we read it.
+		Expression versionCondition = Expression.builder()
+				.expression("attribute_not_exists(groomerId)")
+				.build();
+		
+		Expression currentCondition;
+		if (expectedVersion == null) {
+			currentCondition = versionCondition;
 		} else {
-			
-			// Create first versioned record.
-			groomer.setGroomerId(groomerId);
-			groomer.setVersion("v1");
-			groomer.setLatestVersion(null);
-			groomerTable.putItem(groomer);
-			
-			// Create the v0 record.
-			groomer.setVersion("v0");
-			groomer.setLatestVersion(1);
-			groomerTable.putItem(groomer);
+			Map<String,AttributeValue> values = new HashMap<>();
+			values.put(":expectedVersion", AttributeValue.builder().n(expectedVersion.toString()).build());
+			currentCondition = Expression.builder()
+					.expressionValues(values)
+					.expression("latestVersion = :expectedVersion")
+					.build();
+		}
+		
+		TransactWriteItemsEnhancedRequest saveRequest = TransactWriteItemsEnhancedRequest.builder()
+				.addPutItem(groomerTable, PutItemEnhancedRequest.builder(Groomer.class)
+						.item(versionRecord)
+						.conditionExpression(versionCondition)
+						.build())
+				.addPutItem(groomerTable, PutItemEnhancedRequest.builder(Groomer.class)
+						.item(currentRecord)
+						.conditionExpression(currentCondition)
+						.build())
+				.build();
+		
+		dynamoDbEnhancedClient.transactWriteItems(saveRequest);
+		groomer.setLatestVersion(newVersion);
+	}
+
+	/**
+	 * Read the v0 record a save is based on. Package-private so tests can stage a race.
+	 * 
+	 * @param groomerId
+	 * @return Groomer v0 record, or null
+	 */
+	Groomer readCurrent(String groomerId) {
+		
+		// Consistent, so a save that just landed is seen and the version check doesn't fail on a stale copy.
+		Key key = Key.builder()
+				.partitionValue(groomerId)
+				.sortValue(GroomerKey.CURRENT_VERSION)
+				.build();
+		
+		return groomerTable.getItem(GetItemEnhancedRequest.builder()
+				.key(key)
+				.consistentRead(true)
+				.build());
+	}
+	
+	/**
+	 * Wait a random time before retrying a save, so two saves that keep colliding drift apart.
+	 * 
+	 * @param attempt
+	 */
+	private void backOff(int attempt) {
+		long bound = SAVE_BACKOFF_MILLIS << (attempt - 1);
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
 		}
 	}
+	
+	/**
+	 * A cancelled transaction is worth retrying when it lost a condition check or
+	 * collided with another transaction, rather than failing validation.
+	 * 
+	 * @param exception
+	 * @return true if the save should be retried
+	 */
+	private boolean isConflict(TransactionCanceledException e) {
+		if (!e.hasCancellationReasons())
+			return false;
+		return e.cancellationReasons().stream()
+				.anyMatch(reason -> "ConditionalCheckFailed".equals(reason.code()) || "TransactionConflict".equals(reason.code()));
+	}
+
+	/**
+	 * Copy a Groomer through the table schema.
+	 * 
+	 * @param Groomer
+	 * @return copy
+	 */
+	private Groomer copy(Groomer groomer) {
+		return groomerTable.tableSchema().mapToItem(groomerTable.tableSchema().itemToMap(groomer, true));
+	}
 
 	/**
 	 * Retrieve groomer by groomer id.
@@ -91,33 +241,14 @@ public class GroomerRepositoryImpl implements GroomerRepository {
 	 */
 	@Override
 	public Groomer getGroomer(String groomerId) {
-		Groomer groomer = null;
-		
-		// Build attributes including full Groomer ID and a string containing
-		// the "v0" sort key to get the latest version.
-		AttributeValue attrGroomerId = AttributeValue.builder().s(groomerId).build();
-		AttributeValue attrVersion = AttributeValue.builder().s("v0").build();
-
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":groomerId", attrGroomerId);
-		values.put(":version0", attrVersion);
-		
-		// Build expression. We're looking for a specific Groomer ID partition key
-		// and the v0 version record.
-		Expression groomerExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("groomerId = :groomerId and version = :version0")
-				.build();
-		
-		// Scan table for results.
-		ScanEnhancedRequest groomerRequest = ScanEnhancedRequest.builder().filterExpression(groomerExpression).build();
-		PageIterable<Groomer> groomerResults = groomerTable.scan(groomerRequest);
 		
-		// Should only be one, and it should throw error if more than one is found but doesn't yet.
-		if (groomerResults.items().iterator().hasNext())
-			groomer = groomerResults.items().iterator().next();
+		// The v0 record holds the latest version, so read it directly by key.
+		Key key = Key.builder()
+				.partitionValue(groomerId)
+				.sortValue(GroomerKey.CURRENT_VERSION)
+				.build();
 		
-		return groomer;
+		return groomerTable.getItem(key);
 	}
 
 	/**
@@ -128,38 +259,152 @@ public class GroomerRepositoryImpl implements GroomerRepository {
 	 */
 	@Override
 	public Groomer getGroomerByEmployeeNumber(String employeeNumber) {
-		return getGroomer("GROOMER#" + employeeNumber);
+		return getGroomer(GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId());
+	}
+
+	/**
+	 * Retrieve the v0 records for a set of groomer ids using BatchGetItem, in chunks
+	 * of up to 100 keys. Ids without a matching groomer are left out of the results.
+	 * 
+	 * @param groomer ids
+	 * @return matching Groomers
+	 */
+	@Override
+	public List<Groomer> getGroomers(Collection<String> groomerIds) {
+		List<Groomer> results = new ArrayList<Groomer>();
+		List<String> distinctIds = new ArrayList<String>(new LinkedHashSet<String>(groomerIds));
+		
+		for (int i = 0; i < distinctIds.size(); i += BATCH_GET_LIMIT) {
+			
+			// Build a batch of v0 keys for this chunk.
+			ReadBatch.Builder<Groomer> readBatch = ReadBatch.builder(Groomer.class).mappedTableResource(groomerTable);
+			distinctIds.subList(i, Math.min(i + BATCH_GET_LIMIT, distinctIds.size()))
+					.forEach(groomerId -> readBatch.addGetItem(Key.builder()
+							.partitionValue(groomerId)
+							.sortValue(GroomerKey.CURRENT_VERSION)
+							.build()));
+			
+			// The result pages follow any unprocessed keys until the batch is complete.
+			BatchGetItemEnhancedRequest groomerRequest = BatchGetItemEnhancedRequest.builder()
+					.readBatches(readBatch.build())
+					.build();
+			dynamoDbEnhancedClient.batchGetItem(groomerRequest).resultsForTable(groomerTable).forEach(results::add);
+		}
+		
+		return results;
 	}
 
 	/**
-	 * Returns a list of all active groomers.
+	 * Returns a list of all active groomers. Only v0 records carry the current index
+	 * key, so the index holds one item per groomer regardless of version history.
 	 * 
 	 * @return all matching Groomers
 	 */
 	@Override
 	public List<Groomer> getAllGroomers() {
+		return getAllGroomers(null);
+	}
+
+	/**
+	 * Returns all active groomers, reading only the requested fields (plus the keys
+	 * and names).
+	 * 
+	 * @param fields to read, null for whole items
+	 * @return all matching Groomers
+	 */
+	@Override
+	public List<Groomer> getAllGroomers(Collection<String> fields) {
+		QueryEnhancedRequest.Builder groomerRequest = currentRequest();
+		if (fields != null)
+			groomerRequest.attributesToProject(Projection.of(groomerTable.tableSchema().attributeNames(), fields, GROOMER_ALWAYS_READ));
 		
-		// Build attribute, a string containing the "v0" sort key to just get the latest versions.
-		AttributeValue attrVersion = AttributeValue.builder().s("v0").build();
+		// Query the sparse current index, then sort and return results.
+		List<Groomer> results = new ArrayList<Groomer>();
+		currentIndex.query(groomerRequest.build()).forEach(page -> results.addAll(page.items()));
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Hand every active groomer to a consumer as the index pages arrive, without
+	 * collecting them first. Groomers come in index order, not sorted.
+	 * 
+	 * @param consumer of Groomers
+	 */
+	@Override
+	public void streamAllGroomers(Consumer<Groomer> consumer) {
+		currentIndex.query(currentRequest().build()).forEach(page -> page.items().forEach(consumer));
+	}
+
+	/**
+	 * Get a page of active groomers, in index order.
+	 * 
+	 * @param most groomers to return
+	 * @param key to start after, null for the first page
+	 * @return page of Groomers
+	 */
+	@Override
+	public PagedResult<Groomer> getGroomersPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		return PagedResult.take(currentIndex.query(currentRequest()
+				.limit(limit)
+				.exclusiveStartKey(exclusiveStartKey)
+				.build()), limit, groomerTable.tableSchema(), CURRENT_INDEX_KEY);
+	}
 
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":version0", attrVersion);
+	/**
+	 * Give v0 records saved before the current index existed the index key, so the
+	 * index reads find them. Scans for v0 records without the key and sets it on each
+	 * one, only while it's still missing, so a save made in the meantime is left
+	 * alone. The filter doesn't make the scan cheap, it still reads every item in
+	 * the table, vN history included, so this is a one-off migration rather than
+	 * something to run on every start.
+	 * 
+	 * @return number of records updated
+	 */
+	public int backfillCurrentIndex() {
+		ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+				.attributesToProject("groomerId", "version")
+				.filterExpression(Expression.builder()
+						.expression("#version = :current AND attribute_not_exists(currentRecord)")
+						.putExpressionName("#version", "version")
+						.putExpressionValue(":current", AttributeValue.builder().s(GroomerKey.CURRENT_VERSION).build())
+						.build())
+				.build();
 		
-		// Build expression. We're looking for a specific Groomer ID partition key
-		// and the v0 version record.
-		Expression groomerExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("version = :version0")
+		// Only the index key is written, everything else on the record stays as it is.
+		Expression stillMissing = Expression.builder()
+				.expression("attribute_exists(groomerId) AND attribute_not_exists(currentRecord)")
 				.build();
 		
-		// Scan table for results.
-		ScanEnhancedRequest groomerRequest = ScanEnhancedRequest.builder().filterExpression(groomerExpression).build();
-		PageIterable<Groomer> groomerResults = groomerTable.scan(groomerRequest);
+		int updated = 0;
+		for (Groomer groomer: groomerTable.scan(request).items()) {
+			Groomer indexKey = new Groomer();
+			indexKey.setGroomerId(groomer.getGroomerId());
+			indexKey.setVersion(GroomerKey.CURRENT_VERSION);
+			indexKey.setCurrentRecord(Groomer.CURRENT);
+			try {
+				groomerTable.updateItem(UpdateItemEnhancedRequest.builder(Groomer.class)
+						.item(indexKey)
+						.ignoreNulls(true)
+						.conditionExpression(stillMissing)
+						.build());
+				updated++;
+			} catch (ConditionalCheckFailedException e) {
+				log.debug("groomer [" + groomer.getGroomerId() + "] changed during backfill, skipping");
+			}
+		}
+		return updated;
+	}
 
-		// Convert and return results.
-		List<Groomer> results = new ArrayList<Groomer>();
-		groomerResults.items().forEach(results::add);
-		Collections.sort(results);
-		return results;
+	/**
+	 * Query for the sparse current index, which only v0 records are in.
+	 * 
+	 * @return query request builder
+	 */
+	private QueryEnhancedRequest.Builder currentRequest() {
+		return QueryEnhancedRequest.builder()
+				.queryConditional(QueryConditional.keyEqualTo(Key.builder()
+						.partitionValue(Groomer.CURRENT)
+						.build()));
 	}
 }
@@ -0,0 +1,81 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import software.amazon.awssdk.core.pagination.sync.SdkIterable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * One page of a longer read, along with the key to start the next page after. The
+ * key is null once the read is complete.
+ */
+public class PagedResult<T> {
+	private List<T> items;
+	private Map<String,AttributeValue> lastEvaluatedKey;
+
+	public PagedResult(List<T> items, Map<String,AttributeValue> lastEvaluatedKey) {
+		this.items = items;
+		this.lastEvaluatedKey = (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) ? null : lastEvaluatedKey;
+	}
+
+	public List<T> getItems() {
+		return items;
+	}
+
+	public Map<String,AttributeValue> getLastEvaluatedKey() {
+		return lastEvaluatedKey;
+	}
+
+	public boolean hasMore() {
+		return lastEvaluatedKey != null;
+	}
+
+	/**
+	 * Take up to limit items from a paged read, following pages as needed. A filtered
+	 * read can come back short, so this keeps reading until the page is full. When it
+	 * stops part way through a DynamoDB page, the key of the last item taken is used
+	 * to start the next one, DynamoDB accepts any item key as an exclusive start key.
+	 * 
+	 * @param pages of the read
+	 * @param most items to take
+	 * @param schema used to pull the key out of an item
+	 * @param key attributes, including the index keys when reading an index
+	 * @return page of results
+	 */
+	static <T> PagedResult<T> take(SdkIterable<Page<T>> pages, int limit, TableSchema<T> tableSchema, Collection<String> keyAttributes) {
+		List<T> items = new ArrayList<T>();
+
+		for (Page<T> page: pages) {
+			int needed = limit - items.size();
+			if (page.items().size() > needed) {
+				items.addAll(page.items().subList(0, needed));
+				return new PagedResult<T>(items, tableSchema.itemToMap(items.get(items.size() - 1), keyAttributes));
+			}
+
+			items.addAll(page.items());
+			if (items.size() == limit)
+				return new PagedResult<T>(items, page.lastEvaluatedKey());
+		}
+
+		return new PagedResult<T>(items, null);
+	}
+}
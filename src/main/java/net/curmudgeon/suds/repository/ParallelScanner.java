@@ -0,0 +1,146 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Runs full table scans split into segments, and sets of independent queries, on a
+ * bounded executor.
+ */
+public class ParallelScanner {
+	private static final Logger log = LogManager.getLogger(ParallelScanner.class);
+
+	private ExecutorService executor;
+	private int totalSegments;
+
+	/**
+	 * @param executor used to run the segments, may be null for unsplit scans
+	 * @param number of segments to split each scan into, 1 for an unsplit scan
+	 */
+	public ParallelScanner(ExecutorService executor, int totalSegments) {
+		this.executor = executor;
+		this.totalSegments = Math.max(1, totalSegments);
+	}
+
+	public int getTotalSegments() {
+		return totalSegments;
+	}
+
+	/**
+	 * Stop the executor, called by Spring when the context closes.
+	 */
+	public void shutdown() {
+		if (executor != null)
+			executor.shutdown();
+	}
+
+	/**
+	 * Run a scan and merge the results of all segments. The scan function is given
+	 * the segment number and total number of segments to put on its request, both
+	 * null when the scan isn't split. Results are in segment order, so callers still
+	 * need to sort.
+	 * 
+	 * @param function that runs the scan for one segment
+	 * @return merged items from all segments
+	 */
+	public <T> List<T> scan(BiFunction<Integer,Integer,Iterable<T>> segmentScan) {
+		List<T> results = new ArrayList<T>();
+
+		if (totalSegments == 1 || executor == null) {
+			segmentScan.apply(null, null).forEach(results::add);
+			return results;
+		}
+
+		// Start every segment, each one collecting its own pages.
+		List<Future<List<T>>> segments = new ArrayList<>();
+		for (int segment = 0; segment < totalSegments; segment++) {
+			Integer thisSegment = segment;
+			segments.add(executor.submit(() -> {
+				List<T> items = new ArrayList<T>();
+				segmentScan.apply(thisSegment, totalSegments).forEach(items::add);
+				return items;
+			}));
+		}
+
+		results.addAll(collect(segments));
+		log.debug("scanned [" + results.size() + "] items in [" + totalSegments + "] segments");
+		return results;
+	}
+
+	/**
+	 * Run one query per key side by side and merge the results, in key order. Runs in
+	 * the calling thread when there is no executor or only one key.
+	 * 
+	 * @param keys to query
+	 * @param function that runs the query for one key
+	 * @return merged items from all queries
+	 */
+	public <K,T> List<T> queryAll(List<K> keys, Function<K,Iterable<T>> query) {
+		List<T> results = new ArrayList<T>();
+
+		if (keys.size() <= 1 || executor == null) {
+			keys.forEach(key -> query.apply(key).forEach(results::add));
+			return results;
+		}
+
+		List<Future<List<T>>> queries = new ArrayList<>();
+		for (K key: keys) {
+			queries.add(executor.submit(() -> {
+				List<T> items = new ArrayList<T>();
+				query.apply(key).forEach(items::add);
+				return items;
+			}));
+		}
+
+		results.addAll(collect(queries));
+		log.debug("queried [" + results.size() + "] items for [" + keys.size() + "] keys");
+		return results;
+	}
+
+	/**
+	 * Wait for all of the tasks, giving up on the rest if one fails.
+	 * 
+	 * @param running tasks
+	 * @return merged results, in task order
+	 */
+	private <T> List<T> collect(List<Future<List<T>>> tasks) {
+		List<T> results = new ArrayList<T>();
+		try {
+			for (Future<List<T>> task: tasks) {
+				results.addAll(task.get());
+			}
+		} catch (InterruptedException e) {
+			tasks.forEach(task -> task.cancel(true));
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted during parallel read", e);
+		} catch (ExecutionException e) {
+			tasks.forEach(task -> task.cancel(true));
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new IllegalStateException("parallel read failed", e.getCause());
+		}
+		return results;
+	}
+}
@@ -0,0 +1,124 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Runs the write batches of a bulk import side by side on a fixed pool. Each import
+ * gets a limited number of batches in flight, and submitting another one blocks
+ * until one finishes, so a fast reader can't queue up more than the table takes.
+ * A failed batch doesn't stop the import, its keys are reported as failed.
+ */
+public class ParallelWriter {
+	private static final Logger log = LogManager.getLogger(ParallelWriter.class);
+	
+	// Reason given to the client for a failed write, the cause is logged rather than echoed back.
+	public static final String WRITE_FAILED = "write failed";
+
+	private ExecutorService executor;
+	private int maxInFlight;
+
+	/**
+	 * @param executor used to run the batches
+	 * @param number of batches one import can have running at once
+	 */
+	public ParallelWriter(ExecutorService executor, int maxInFlight) {
+		this.executor = executor;
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+
+	/**
+	 * Stop the executor, called by Spring when the context closes.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * Start an import.
+	 * 
+	 * @return batches for one import, keyed by whatever identifies its records
+	 */
+	public <K extends Comparable<K>> Batches<K> start() {
+		return new Batches<K>();
+	}
+
+	/**
+	 * The batches of one import.
+	 */
+	public class Batches<K extends Comparable<K>> {
+		private Semaphore permits = new Semaphore(maxInFlight);
+		private Map<K,String> failures = new ConcurrentSkipListMap<>();
+		private int submitted;
+
+		private Batches() { }
+
+		/**
+		 * Run a write, waiting first if too many of this import's writes are running.
+		 * 
+		 * @param keys of the records being written, reported if the write fails
+		 * @param write to run
+		 */
+		public void submit(Collection<K> keys, Runnable write) {
+			acquire(1);
+			try {
+				executor.submit(() -> {
+					try {
+						write.run();
+					} catch (RuntimeException e) {
+						log.warn("import batch of [" + keys.size() + "] records failed", e);
+						keys.forEach(key -> failures.put(key, WRITE_FAILED));
+					} finally {
+						permits.release();
+					}
+				});
+				submitted++;
+			} catch (RejectedExecutionException e) {
+				permits.release();
+				throw e;
+			}
+		}
+
+		/**
+		 * Wait for every write to finish.
+		 * 
+		 * @return failure reasons for the keys whose writes failed, in key order
+		 */
+		public Map<K,String> finish() {
+			acquire(maxInFlight);
+			permits.release(maxInFlight);
+			log.debug("import wrote [" + submitted + "] batches, [" + failures.size() + "] records failed");
+			return failures;
+		}
+
+		private void acquire(int count) {
+			try {
+				permits.acquire(count);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("interrupted during import", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Builds the list of attributes for a projected read. Requested fields are checked
+ * against the attributes the table schema knows about, and the attributes a
+ * repository always needs (keys, sort fields) are added on.
+ */
+final class Projection {
+
+	private Projection() { }
+
+	/**
+	 * @param attribute names the schema knows about
+	 * @param requested fields
+	 * @param attributes always read
+	 * @return attributes to project, always read ones first
+	 * @throws IllegalArgumentException for a field the schema doesn't have
+	 */
+	static List<String> of(Collection<String> knownAttributes, Collection<String> fields, Collection<String> alwaysRead) {
+		Set<String> attributes = new LinkedHashSet<String>(alwaysRead);
+		for (String field: fields) {
+			if (!knownAttributes.contains(field))
+				throw new IllegalArgumentException("unknown field [" + field + "], expected one of " + new TreeSet<String>(knownAttributes));
+			attributes.add(field);
+		}
+		return new ArrayList<String>(attributes);
+	}
+
+	/**
+	 * Build a low level projection expression, with every attribute behind a name
+	 * placeholder so reserved words like "name" don't need special handling.
+	 * 
+	 * @param attributes to project
+	 * @param expression attribute names, filled in
+	 * @return projection expression
+	 */
+	static String expression(List<String> attributes, Map<String,String> names) {
+		List<String> placeholders = new ArrayList<String>();
+		for (int i = 0; i < attributes.size(); i++) {
+			names.put("#p" + i, attributes.get(i));
+			placeholders.add("#p" + i);
+		}
+		return String.join(",", placeholders);
+	}
+}
@@ -0,0 +1,127 @@
+package net.curmudgeon.suds.repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.util.ScheduleKey;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Non-blocking, read-only implementation for the Schedule Repository.
+ */
+public class ScheduleAsyncRepositoryImpl implements ScheduleAsyncRepository {
+
+	private DynamoDbAsyncTable<Schedule> scheduleTable;
+	private DynamoDbAsyncIndex<Schedule> dayIndex;
+	private DynamoDbAsyncIndex<Schedule> groomerIndex;
+	private DynamoDbAsyncIndex<Schedule> customerIndex;
+	
+	// Constructor creates table and index objects.
+	public ScheduleAsyncRepositoryImpl(DynamoDbEnhancedAsyncClient dynamoDbEnhancedAsyncClient) {
+		scheduleTable = dynamoDbEnhancedAsyncClient.table("Schedule", TableSchema.fromBean(Schedule.class));
+		dayIndex = scheduleTable.index(Schedule.DAY_INDEX);
+		groomerIndex = scheduleTable.index(Schedule.GROOMER_INDEX);
+		customerIndex = scheduleTable.index(Schedule.CUSTOMER_INDEX);
+	}
+
+	/**
+	 * Get the schedule entries between the specified times. The per-day index queries
+	 * all run at the same time.
+	 * 
+	 * @param start time
+	 * @param end time
+	 * @return future completing with the matching Schedules, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Schedule>> getSchedule(LocalDateTime start, LocalDateTime end) {
+		List<CompletableFuture<List<Schedule>>> days = new ArrayList<>();
+		for (LocalDate day = start.toLocalDate(); !day.isAfter(end.toLocalDate()); day = day.plusDays(1)) {
+			days.add(queryIndex(dayIndex, ScheduleKey.day(day), start, end));
+		}
+		
+		return CompletableFuture.allOf(days.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+			List<Schedule> results = new ArrayList<Schedule>();
+			days.forEach(day -> results.addAll(day.join()));
+			Collections.sort(results);
+			return results;
+		});
+	}
+
+	/**
+	 * Get the schedule entries for a specific Groomer.
+	 * 
+	 * @param Groomer
+	 * @param start time
+	 * @param end time
+	 * @return future completing with the matching Schedules, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Schedule>> getScheduleForGroomer(Groomer groomer, LocalDateTime start, LocalDateTime end) {
+		return queryIndex(groomerIndex, groomer.getGroomerId(), start, end);
+	}
+
+	/**
+	 * Get the schedule entries for a specific Parent.
+	 * 
+	 * @param Parent
+	 * @param start time
+	 * @param end time
+	 * @return future completing with the matching Schedules, sorted
+	 */
+	@Override
+	public CompletableFuture<List<Schedule>> getScheduleForParent(Parent parent, LocalDateTime start, LocalDateTime end) {
+		return queryIndex(customerIndex, parent.getCustomerId(), start, end);
+	}
+
+	/**
+	 * Query an index for the entries in a partition with appointment times between
+	 * the specified start and end times (inclusive).
+	 * 
+	 * @param index
+	 * @param partition value
+	 * @param start time
+	 * @param end time
+	 * @return future completing with the matching Schedules, sorted
+	 */
+	private CompletableFuture<List<Schedule>> queryIndex(DynamoDbAsyncIndex<Schedule> index, String partitionValue,
+			LocalDateTime start, LocalDateTime end) {
+		Key startKey = Key.builder().partitionValue(partitionValue).sortValue(start.toString()).build();
+		Key endKey = Key.builder().partitionValue(partitionValue).sortValue(end.toString()).build();
+		
+		QueryEnhancedRequest scheduleRequest = QueryEnhancedRequest.builder()
+				.queryConditional(QueryConditional.sortBetween(startKey, endKey))
+				.build();
+		
+		return AsyncResults.collectPages(index.query(scheduleRequest)).thenApply(results -> {
+			Collections.sort(results);
+			return results;
+		});
+	}
+}
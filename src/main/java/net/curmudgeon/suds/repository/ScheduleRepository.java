@@ -2,10 +2,12 @@ package net.curmudgeon.suds.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Schedule;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -27,7 +29,9 @@ import net.curmudgeon.suds.entity.Schedule;
 public interface ScheduleRepository {
 
 	public void saveSchedule(Schedule schedule);
+	public void saveSchedules(List<Schedule> schedules);
 	public List<Schedule> getSchedule(LocalDateTime start, LocalDateTime end);
+	public PagedResult<Schedule> getSchedulePage(LocalDateTime start, LocalDateTime end, int limit, Map<String,AttributeValue> exclusiveStartKey);
 	public List<Schedule> getScheduleForGroomer(Groomer groomer, LocalDateTime start, LocalDateTime end);
 	public List<Schedule> getScheduleForParent(Parent parent, LocalDateTime start, LocalDateTime end);
 }
@@ -1,23 +1,31 @@
 package net.curmudgeon.suds.repository;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.util.ScheduleKey;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.Expression;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
-import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
 import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.UpdateItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -37,12 +45,26 @@ import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
  * Implementation for the Shedule Repository.
  */
 public class ScheduleRepositoryImpl implements ScheduleRepository {
+	
+	private static final String TABLE_NAME = "Schedule";
+	private static final String APPOINTMENT_DAY = "appointmentDay";
+	
+	// Key attributes of a day index item, index key first.
+	private static final List<String> DAY_INDEX_KEY = Arrays.asList(APPOINTMENT_DAY, "appointmentTime", "scheduleId");
 
 	private DynamoDbTable<Schedule> scheduleTable;
+	private DynamoDbIndex<Schedule> dayIndex;
+	private DynamoDbIndex<Schedule> groomerIndex;
+	private DynamoDbIndex<Schedule> customerIndex;
+	private BatchWriter batchWriter;
 	
-	// Constructor creates table object.
-	public ScheduleRepositoryImpl(DynamoDbEnhancedClient dynamoDbEnhancedClient) {
-		scheduleTable = dynamoDbEnhancedClient.table("Schedule", TableSchema.fromBean(Schedule.class));
+	// Constructor creates table and index objects.
+	public ScheduleRepositoryImpl(DynamoDbEnhancedClient dynamoDbEnhancedClient, DynamoDbClient dynamoDbClient) {
+		scheduleTable = dynamoDbEnhancedClient.table(TABLE_NAME, TableSchema.fromBean(Schedule.class));
+		dayIndex = scheduleTable.index(Schedule.DAY_INDEX);
+		groomerIndex = scheduleTable.index(Schedule.GROOMER_INDEX);
+		customerIndex = scheduleTable.index(Schedule.CUSTOMER_INDEX);
+		batchWriter = new BatchWriter(dynamoDbClient);
 	}
 
 	/**
@@ -52,17 +74,31 @@ public class ScheduleRepositoryImpl implements ScheduleRepository {
 	 */
 	@Override
 	public void saveSchedule(Schedule schedule) {
-		
-		// Create DynamoDB partition key using the epoch second of the
-		// timestamp. The sort key is the time.
-		schedule.setScheduleId("SCHEDULE#"+
-				schedule.getAppointmentTime().atZone(ZoneId.systemDefault()).toEpochSecond());
-		
+		assignKeys(schedule);
 		scheduleTable.putItem(schedule);
 	}
 
 	/**
-	 * Get the schedule entries between the specified times.
+	 * Save out any number of Schedule objects with BatchWriteItem, 25 at a time, with
+	 * unprocessed items retried. Entries at the same appointment time share a key, so
+	 * only the last one is kept, same as saving them one by one.
+	 * 
+	 * @param Schedules
+	 */
+	@Override
+	public void saveSchedules(List<Schedule> schedules) {
+		Map<String,Map<String,AttributeValue>> items = new LinkedHashMap<>();
+		for (Schedule schedule: schedules) {
+			assignKeys(schedule);
+			items.put(schedule.getScheduleId(), scheduleTable.tableSchema().itemToMap(schedule, true));
+		}
+		
+		batchWriter.putAll(TABLE_NAME, new ArrayList<Map<String,AttributeValue>>(items.values()));
+	}
+
+	/**
+	 * Get the schedule entries between the specified times. Runs one query against
+	 * the day index for each day in the range.
 	 * 
 	 * @param start time
 	 * @param end time
@@ -70,72 +106,78 @@ public class ScheduleRepositoryImpl implements ScheduleRepository {
 	 */
 	@Override
 	public List<Schedule> getSchedule(LocalDateTime start, LocalDateTime end) {
+		List<Schedule> results = new ArrayList<Schedule>();
 		
-		// Build attributes for the start and end times.
-		AttributeValue attrStartTime = AttributeValue.builder().s(start.toString()).build();
-		AttributeValue attrEndTime = AttributeValue.builder().s(end.toString()).build();
-		
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":startTime", attrStartTime);
-		values.put(":endTime", attrEndTime);
-		
-		// Build expression.
-		Expression scheduleExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("appointmentTime >= :startTime and appointmentTime <= :endTime")
-				.build();
+		for (LocalDate day = start.toLocalDate(); !day.isAfter(end.toLocalDate()); day = day.plusDays(1)) {
+			results.addAll(queryIndex(dayIndex, ScheduleKey.day(day), start, end));
+		}
 		
-		// Scan table for results.
-		ScanEnhancedRequest scheduleRequest = ScanEnhancedRequest.builder().filterExpression(scheduleExpression).build();
-		PageIterable<Schedule> scheduleResults = scheduleTable.scan(scheduleRequest);
-
 		// Convert and return results.
-		List<Schedule> results = new ArrayList<Schedule>();
-		scheduleResults.items().forEach(results::add);		
 		Collections.sort(results);
 		return results;
 	}
 
 	/**
-	 * Get the schedule entries for a specific Groomer.
+	 * Get a page of the schedule entries between the specified times, in time order.
+	 * Days are read in turn from the day index, so the start key names the day to
+	 * carry on from. When a page ends on a day boundary the start key holds only the
+	 * next day; otherwise it's an index key within that day.
 	 * 
-	 * @param Groomer
 	 * @param start time
 	 * @param end time
-	 * @return matching Schedules
+	 * @param most entries to return
+	 * @param key to start after, null for the first page
+	 * @return page of Schedules
 	 */
 	@Override
-	public List<Schedule> getScheduleForGroomer(Groomer groomer, LocalDateTime start, LocalDateTime end) {
-		
-		// Build attribute for the groomer ID and start/end times.
-		AttributeValue attrGroomerId = AttributeValue.builder().s(groomer.getGroomerId()).build();
-		AttributeValue attrStartTime = AttributeValue.builder().s(start.toString()).build();
-		AttributeValue attrEndTime = AttributeValue.builder().s(end.toString()).build();
+	public PagedResult<Schedule> getSchedulePage(LocalDateTime start, LocalDateTime end, int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		List<Schedule> results = new ArrayList<Schedule>();
+		LocalDate day = start.toLocalDate();
+		Map<String,AttributeValue> startKey = null;
 		
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":groomerId", attrGroomerId);
-		values.put(":startTime", attrStartTime);
-		values.put(":endTime", attrEndTime);
+		if (exclusiveStartKey != null) {
+			day = LocalDate.parse(exclusiveStartKey.get(APPOINTMENT_DAY).s());
+			if (exclusiveStartKey.size() > 1)
+				startKey = exclusiveStartKey;
+		}
 		
-		// Build expression.
-		Expression scheduleExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("groomerId = :groomerId and appointmentTime >= :startTime and appointmentTime <= :endTime")
-				.build();
+		for (; !day.isAfter(end.toLocalDate()); day = day.plusDays(1)) {
+			if (results.size() == limit)
+				return new PagedResult<Schedule>(results, Collections.singletonMap(APPOINTMENT_DAY, AttributeValue.builder().s(ScheduleKey.day(day)).build()));
+			
+			int needed = limit - results.size();
+			PagedResult<Schedule> dayPage = PagedResult.take(dayIndex.query(rangeRequest(ScheduleKey.day(day), start, end)
+					.limit(needed)
+					.exclusiveStartKey(startKey)
+					.build()), needed, scheduleTable.tableSchema(), DAY_INDEX_KEY);
+			results.addAll(dayPage.getItems());
+			if (dayPage.hasMore())
+				return new PagedResult<Schedule>(results, dayPage.getLastEvaluatedKey());
+			startKey = null;
+		}
 		
-		// Scan table for results.
-		ScanEnhancedRequest scheduleRequest = ScanEnhancedRequest.builder().filterExpression(scheduleExpression).build();
-		PageIterable<Schedule> scheduleResults = scheduleTable.scan(scheduleRequest);
+		return new PagedResult<Schedule>(results, null);
+	}
 
-		// Convert and return results.
-		List<Schedule> results = new ArrayList<Schedule>();
-		scheduleResults.items().forEach(results::add);
+	/**
+	 * Get the schedule entries for a specific Groomer. Reads a single range from
+	 * the groomer index.
+	 * 
+	 * @param Groomer
+	 * @param start time
+	 * @param end time
+	 * @return matching Schedules
+	 */
+	@Override
+	public List<Schedule> getScheduleForGroomer(Groomer groomer, LocalDateTime start, LocalDateTime end) {
+		List<Schedule> results = queryIndex(groomerIndex, groomer.getGroomerId(), start, end);
 		Collections.sort(results);
 		return results;
 	}
 
 	/**
-	 * Get the schedule entries for a specific Parent.
+	 * Get the schedule entries for a specific Parent. Reads a single range from
+	 * the customer index.
 	 * 
 	 * @param Parent
 	 * @param start time
@@ -144,31 +186,103 @@ public class ScheduleRepositoryImpl implements ScheduleRepository {
 	 */
 	@Override
 	public List<Schedule> getScheduleForParent(Parent parent, LocalDateTime start, LocalDateTime end) {
+		List<Schedule> results = queryIndex(customerIndex, parent.getCustomerId(), start, end);
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Query an index for the entries in a partition with appointment times between
+	 * the specified start and end times (inclusive).
+	 * 
+	 * @param index
+	 * @param partition value
+	 * @param start time
+	 * @param end time
+	 * @return matching Schedules in index order
+	 */
+	private List<Schedule> queryIndex(DynamoDbIndex<Schedule> index, String partitionValue, LocalDateTime start, LocalDateTime end) {
 		
-		// Build attribute for the customer ID and start/end times.
-		AttributeValue attrCustomerId = AttributeValue.builder().s(parent.getCustomerId()).build();
-		AttributeValue attrStartTime = AttributeValue.builder().s(start.toString()).build();
-		AttributeValue attrEndTime = AttributeValue.builder().s(end.toString()).build();
-	
-		Map<String,AttributeValue> values = new HashMap<>();
-		values.put(":customerId", attrCustomerId);
-		values.put(":startTime", attrStartTime);
-		values.put(":endTime", attrEndTime);
+		// Query the index, following pages until the range is exhausted.
+		List<Schedule> results = new ArrayList<Schedule>();
+		index.query(rangeRequest(partitionValue, start, end).build()).forEach(page -> results.addAll(page.items()));
+		return results;
+	}
+
+	/**
+	 * Build an index query for the entries in a partition with appointment times
+	 * between the specified start and end times (inclusive).
+	 * 
+	 * @param partition value
+	 * @param start time
+	 * @param end time
+	 * @return query request builder
+	 */
+	private QueryEnhancedRequest.Builder rangeRequest(String partitionValue, LocalDateTime start, LocalDateTime end) {
+		
+		// Build keys for the partition and start/end times.
+		Key startKey = Key.builder().partitionValue(partitionValue).sortValue(start.toString()).build();
+		Key endKey = Key.builder().partitionValue(partitionValue).sortValue(end.toString()).build();
+		
+		return QueryEnhancedRequest.builder()
+				.queryConditional(QueryConditional.sortBetween(startKey, endKey));
+	}
+
+	/**
+	 * Give entries saved before the day index existed their appointment day, so the
+	 * date range reads find them. Scans for entries without the day and sets it on
+	 * each one, only while it's still missing. The scan reads the whole table however
+	 * few entries match, so this is a one-off migration, not something to run on
+	 * every start.
+	 * 
+	 * @return number of entries updated
+	 */
+	public int backfillAppointmentDay() {
+		ScanEnhancedRequest request = ScanEnhancedRequest.builder()
+				.attributesToProject("scheduleId", "appointmentTime")
+				.filterExpression(Expression.builder()
+						.expression("attribute_not_exists(" + APPOINTMENT_DAY + ")")
+						.build())
+				.build();
 		
-		// Build expression.
-		Expression scheduleExpression = Expression.builder()
-				.expressionValues(values)
-				.expression("customerId = :customerId and appointmentTime >= :startTime and appointmentTime <= :endTime")
+		// Only the day is written, everything else on the entry stays as it is.
+		Expression stillMissing = Expression.builder()
+				.expression("attribute_exists(scheduleId) AND attribute_not_exists(" + APPOINTMENT_DAY + ")")
 				.build();
 		
-		// Scan table for results.
-		ScanEnhancedRequest scheduleRequest = ScanEnhancedRequest.builder().filterExpression(scheduleExpression).build();
-		PageIterable<Schedule> scheduleResults = scheduleTable.scan(scheduleRequest);
+		int updated = 0;
+		for (Schedule schedule: scheduleTable.scan(request).items()) {
+			Schedule dayKey = new Schedule();
+			dayKey.setScheduleId(schedule.getScheduleId());
+			dayKey.setAppointmentTime(schedule.getAppointmentTime());
+			dayKey.setAppointmentDay(ScheduleKey.day(schedule.getAppointmentTime().toLocalDate()));
+			try {
+				scheduleTable.updateItem(UpdateItemEnhancedRequest.builder(Schedule.class)
+						.item(dayKey)
+						.ignoreNulls(true)
+						.conditionExpression(stillMissing)
+						.build());
+				updated++;
+			} catch (ConditionalCheckFailedException e) {
+				// Deleted or saved again since the scan, nothing left to do.
+			}
+		}
+		return updated;
+	}
 
-		// Convert and return results.
-		List<Schedule> results = new ArrayList<Schedule>();
-		scheduleResults.items().forEach(results::add);
-		Collections.sort(results);
-		return results;
+	/**
+	 * Create DynamoDB keys for a Schedule.
+	 * 
+	 * @param Schedule
+	 */
+	private void assignKeys(Schedule schedule) {
+		
+		// Create DynamoDB partition key using the epoch second of the
+		// timestamp. The sort key is the time.
+		ScheduleKey scheduleKey = ScheduleKey.of(schedule.getAppointmentTime());
+		schedule.setScheduleId(scheduleKey.getScheduleId());
+		
+		// Bucket the entry by day so date ranges can be read from the day index.
+		schedule.setAppointmentDay(scheduleKey.getAppointmentDay());
 	}
 }
@@ -0,0 +1,687 @@
+package net.curmudgeon.suds.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.PetKey;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Write-behind buffer in front of another Customer Repository. Parent and pet saves
+ * are held in memory and written out in batches once per window, so repeated saves
+ * of the same record inside a window cost one write. Single record reads are served
+ * from the buffer first and reads of a customer's item collection have the buffered
+ * records laid over them; full table reads flush first. Once the buffer holds
+ * maxPending records the saving thread flushes it itself, which slows callers down
+ * to what DynamoDB takes. If that flush can't make room, the save is refused with an
+ * exception rather than letting the buffer grow. Each flush writes in chunks of one
+ * batch, and the records of a chunk that fails are set aside and retried one by one
+ * on later flushes, so a bad record only holds up itself. A record that has failed
+ * maxAttempts times is dropped with an error, and counted. Bulk saves skip the
+ * buffer and are written straight through. Records still buffered when the
+ * application stops are flushed on shutdown, but anything buffered is lost if the
+ * process dies, which is why this mode is off by default.
+ */
+public class WriteBehindCustomerRepository implements CustomerRepository {
+	private static final Logger log = LogManager.getLogger(WriteBehindCustomerRepository.class);
+
+	private static final int SHUTDOWN_FLUSH_ATTEMPTS = 3;
+
+	private CustomerRepository customerRepository;
+	private ScheduledExecutorService flushExecutor;
+	private int maxPending;
+	private int maxAttempts;
+
+	// Held by one flush at a time, so batches land in the order they were taken.
+	private final Object flushLock = new Object();
+
+	// Guarded by this. Pending records wait for the next flush, in-flight ones are
+	// being written and stay readable until the write finishes. Set aside records
+	// were in a chunk that failed and are retried on their own.
+	private Map<String,Parent> pendingParents = new LinkedHashMap<>();
+	private Map<PetKey,Pet> pendingPets = new LinkedHashMap<>();
+	private Map<String,Parent> inflightParents = new LinkedHashMap<>();
+	private Map<PetKey,Pet> inflightPets = new LinkedHashMap<>();
+	private Map<String,Parent> setAsideParents = new LinkedHashMap<>();
+	private Map<PetKey,Pet> setAsidePets = new LinkedHashMap<>();
+
+	// Guarded by this. Failed writes of each record since it was last saved, and
+	// records given up on.
+	private Map<String,Integer> parentAttempts = new HashMap<>();
+	private Map<PetKey,Integer> petAttempts = new HashMap<>();
+	private long dropped;
+
+	/**
+	 * @param repository that does the actual writes
+	 * @param executor running the periodic flush
+	 * @param window between flushes in milliseconds
+	 * @param number of buffered records that makes the saving thread flush
+	 * @param failed writes after which a record is dropped, at least 2 so a record
+	 *        caught in a failing chunk gets a try on its own
+	 */
+	public WriteBehindCustomerRepository(CustomerRepository customerRepository, ScheduledExecutorService flushExecutor,
+			long windowMillis, int maxPending, int maxAttempts) {
+		this.customerRepository = customerRepository;
+		this.flushExecutor = flushExecutor;
+		this.maxPending = Math.max(1, maxPending);
+		this.maxAttempts = Math.max(2, maxAttempts);
+		flushExecutor.scheduleWithFixedDelay(this::flush, windowMillis, windowMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Buffer a Parent, replacing any earlier unsaved version of it.
+	 * 
+	 * @param Parent
+	 */
+	@Override
+	public void saveParent(Parent parent) {
+		buffer(Collections.singletonList(parent), Collections.emptyList());
+	}
+
+	/**
+	 * Buffer a Parent and its Pets. An atomic save skips the buffer and goes straight
+	 * through, after dropping any older buffered versions of the same records.
+	 * 
+	 * @param Parent with Pets
+	 * @param atomic, true to write everything in one transaction
+	 */
+	@Override
+	public void saveParentWithPets(Parent parent, boolean atomic) {
+		List<Pet> pets = (parent.getPets() != null) ? parent.getPets() : Collections.emptyList();
+		pets.forEach(pet -> pet.setPhoneNumber(parent.getPhoneNumber()));
+
+		if (!atomic) {
+			buffer(Collections.singletonList(parent), pets);
+			return;
+		}
+
+		synchronized (flushLock) {
+			synchronized (this) {
+				CustomerRepositoryImpl.assignKeys(parent);
+				pendingParents.remove(parentKey(parent));
+				setAsideParents.remove(parentKey(parent));
+				parentAttempts.remove(parentKey(parent));
+				for (Pet pet: pets) {
+					CustomerRepositoryImpl.assignKeys(pet);
+					pendingPets.remove(petKey(pet));
+					setAsidePets.remove(petKey(pet));
+					petAttempts.remove(petKey(pet));
+				}
+			}
+			customerRepository.saveParentWithPets(parent, true);
+		}
+	}
+
+	/**
+	 * Write any number of Parents and Pets straight through. These already come in
+	 * batches, from bulk imports, and the caller needs to know whether they were
+	 * saved. Older buffered versions of the same records are dropped first, after
+	 * waiting out any flush in progress so it can't land on top of these writes.
+	 * Several of these can write at once, only the drop is done under the flush lock.
+	 * 
+	 * @param Parents
+	 * @param Pets
+	 */
+	@Override
+	public void saveParentsAndPets(List<Parent> parents, List<Pet> pets) {
+		synchronized (flushLock) {
+			synchronized (this) {
+				for (Parent parent: parents) {
+					CustomerRepositoryImpl.assignKeys(parent);
+					pendingParents.remove(parentKey(parent));
+					setAsideParents.remove(parentKey(parent));
+					parentAttempts.remove(parentKey(parent));
+				}
+				for (Pet pet: pets) {
+					CustomerRepositoryImpl.assignKeys(pet);
+					pendingPets.remove(petKey(pet));
+					setAsidePets.remove(petKey(pet));
+					petAttempts.remove(petKey(pet));
+				}
+			}
+		}
+		customerRepository.saveParentsAndPets(parents, pets);
+	}
+
+	/**
+	 * Buffer a Pet, replacing any earlier unsaved version of it.
+	 * 
+	 * @param Pet
+	 */
+	@Override
+	public void savePet(Pet pet) {
+		buffer(Collections.emptyList(), Collections.singletonList(pet));
+	}
+
+	@Override
+	public Parent getParentByCustomerId(String customerId) {
+		Parent parent = bufferedParent(customerId);
+		return (parent != null) ? parent : customerRepository.getParentByCustomerId(customerId);
+	}
+
+	@Override
+	public Parent getParentByPhoneNumber(String phoneNumber) {
+		return getParentByCustomerId(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId());
+	}
+
+	/**
+	 * Read the customer's item collection and lay any buffered parent and pets over it.
+	 * 
+	 * @param phone number
+	 * @return matching Parent with Pets populated
+	 */
+	@Override
+	public Parent getParentWithPets(String phoneNumber) {
+		return overlay(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId(), customerRepository.getParentWithPets(phoneNumber));
+	}
+
+	/**
+	 * Read the customers' item collections and lay any buffered parents and pets over them.
+	 * 
+	 * @param customer ids
+	 * @return matching Parents with Pets populated
+	 */
+	@Override
+	public List<Parent> getParentsWithPets(Collection<String> customerIds) {
+		Map<String,Parent> stored = new HashMap<>();
+		customerRepository.getParentsWithPets(customerIds).forEach(parent -> stored.put(parent.getCustomerId(), parent));
+
+		List<Parent> results = new ArrayList<Parent>();
+		for (String customerId: new LinkedHashSet<String>(customerIds)) {
+			Parent parent = overlay(customerId, stored.get(customerId));
+			if (parent != null)
+				results.add(parent);
+		}
+		Collections.sort(results);
+		return results;
+	}
+
+	/**
+	 * Serve what we can from the buffer and look up the rest.
+	 * 
+	 * @param customer ids
+	 * @return matching Parents
+	 */
+	@Override
+	public List<Parent> getParentsByCustomerIds(Collection<String> customerIds) {
+		List<Parent> results = new ArrayList<Parent>();
+		List<String> missingIds = new ArrayList<String>();
+
+		for (String customerId: new LinkedHashSet<String>(customerIds)) {
+			Parent parent = bufferedParent(customerId);
+			if (parent != null)
+				results.add(parent);
+			else
+				missingIds.add(customerId);
+		}
+
+		if (!missingIds.isEmpty())
+			results.addAll(customerRepository.getParentsByCustomerIds(missingIds));
+		return results;
+	}
+
+	@Override
+	public List<Parent> getAllParents() {
+		flush();
+		return customerRepository.getAllParents();
+	}
+
+	@Override
+	public List<Parent> getAllParentsWithPets() {
+		flush();
+		return customerRepository.getAllParentsWithPets();
+	}
+
+	@Override
+	public List<Parent> getAllParentsWithPets(Collection<String> fields) {
+		flush();
+		return customerRepository.getAllParentsWithPets(fields);
+	}
+
+	@Override
+	public void streamAllParentsWithPets(Consumer<Parent> consumer) {
+		flush();
+		customerRepository.streamAllParentsWithPets(consumer);
+	}
+
+	@Override
+	public PagedResult<Parent> getParentsWithPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		flush();
+		return customerRepository.getParentsWithPetsPage(limit, exclusiveStartKey);
+	}
+
+	@Override
+	public Pet getPetByCustomerIdAndPetId(String customerId, String petId) {
+		Pet pet = bufferedPet(PetKey.of(customerId, petId));
+		return (pet != null) ? pet : customerRepository.getPetByCustomerIdAndPetId(customerId, petId);
+	}
+
+	@Override
+	public Pet getPetByPhoneNumberAndName(String phoneNumber, String name) {
+		PetKey petKey = PetKey.of(CustomerKey.fromPhoneNumber(phoneNumber), name);
+		return getPetByCustomerIdAndPetId(petKey.getCustomerId(), petKey.getPetId());
+	}
+
+	/**
+	 * Serve what we can from the buffer and look up the rest.
+	 * 
+	 * @param Pets containing the keys to retrieve
+	 * @return matching Pets
+	 */
+	@Override
+	public List<Pet> getPets(Collection<Pet> petKeys) {
+		List<Pet> results = new ArrayList<Pet>();
+		Map<PetKey,Pet> missingKeys = new LinkedHashMap<>();
+
+		for (Pet petKey: petKeys) {
+			PetKey key = PetKey.of(petKey.getCustomerId(), petKey.getId());
+			Pet pet = bufferedPet(key);
+			if (pet != null) {
+				if (!results.contains(pet))
+					results.add(pet);
+			} else {
+				missingKeys.put(key, petKey);
+			}
+		}
+
+		if (!missingKeys.isEmpty())
+			results.addAll(customerRepository.getPets(missingKeys.values()));
+		return results;
+	}
+
+	@Override
+	public List<Pet> getPetsForParent(String phoneNumber) {
+		String customerId = CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId();
+		return mergePets(customerRepository.getPetsForParent(phoneNumber), bufferedPets(customerId));
+	}
+
+	@Override
+	public List<Pet> getAllPets() {
+		flush();
+		return customerRepository.getAllPets();
+	}
+
+	@Override
+	public List<Pet> getAllPets(Collection<String> fields) {
+		flush();
+		return customerRepository.getAllPets(fields);
+	}
+
+	@Override
+	public void streamAllPets(Consumer<Pet> consumer) {
+		flush();
+		customerRepository.streamAllPets(consumer);
+	}
+
+	@Override
+	public PagedResult<Pet> getPetsPage(int limit, Map<String,AttributeValue> exclusiveStartKey) {
+		flush();
+		return customerRepository.getPetsPage(limit, exclusiveStartKey);
+	}
+
+	/**
+	 * Write out everything buffered so far. Pending records go out in chunks of one
+	 * batch each, set aside records one at a time. The records of a chunk that fails
+	 * are set aside, unless they were saved again in the meantime, and the rest of
+	 * the flush carries on. Called on the window, when the buffer fills up and before
+	 * full table reads.
+	 * 
+	 * @return true if everything buffered was written out (or there was nothing)
+	 */
+	public boolean flush() {
+		synchronized (flushLock) {
+			List<Chunk> chunks = new ArrayList<Chunk>();
+			synchronized (this) {
+				if (pendingParents.isEmpty() && pendingPets.isEmpty() && setAsideParents.isEmpty() && setAsidePets.isEmpty())
+					return true;
+				
+				// Set aside records first, each on its own.
+				setAsideParents.values().forEach(parent -> chunks.add(new Chunk().add(parent)));
+				setAsidePets.values().forEach(pet -> chunks.add(new Chunk().add(pet)));
+				
+				Chunk chunk = new Chunk();
+				for (Parent parent: pendingParents.values()) {
+					chunk.add(parent);
+					if (chunk.size() >= BatchWriter.BATCH_WRITE_LIMIT) {
+						chunks.add(chunk);
+						chunk = new Chunk();
+					}
+				}
+				for (Pet pet: pendingPets.values()) {
+					chunk.add(pet);
+					if (chunk.size() >= BatchWriter.BATCH_WRITE_LIMIT) {
+						chunks.add(chunk);
+						chunk = new Chunk();
+					}
+				}
+				if (chunk.size() > 0)
+					chunks.add(chunk);
+				
+				inflightParents = new LinkedHashMap<>(setAsideParents);
+				inflightParents.putAll(pendingParents);
+				inflightPets = new LinkedHashMap<>(setAsidePets);
+				inflightPets.putAll(pendingPets);
+				pendingParents = new LinkedHashMap<>();
+				pendingPets = new LinkedHashMap<>();
+				setAsideParents = new LinkedHashMap<>();
+				setAsidePets = new LinkedHashMap<>();
+			}
+			
+			int written = 0;
+			int failed = 0;
+			try {
+				for (Chunk chunk: chunks) {
+					try {
+						customerRepository.saveParentsAndPets(chunk.parents, chunk.pets);
+						written += chunk.size();
+						clearAttempts(chunk);
+					} catch (RuntimeException e) {
+						// Logged rather than thrown, an exception would cancel the scheduled flush.
+						log.error("write-behind chunk of [" + chunk.size() + "] records failed, setting aside " + chunk, e);
+						failed += chunk.size();
+						setAside(chunk);
+					}
+				}
+			} finally {
+				synchronized (this) {
+					inflightParents = new LinkedHashMap<>();
+					inflightPets = new LinkedHashMap<>();
+				}
+			}
+			
+			log.debug("write-behind flushed [" + written + "] records, [" + failed + "] set aside");
+			return failed == 0;
+		}
+	}
+
+	/**
+	 * @return number of records waiting for the next flush
+	 */
+	public synchronized int getPending() {
+		return pendingParents.size() + pendingPets.size();
+	}
+
+	/**
+	 * @return number of records set aside after a failed write
+	 */
+	public synchronized int getSetAside() {
+		return setAsideParents.size() + setAsidePets.size();
+	}
+
+	/**
+	 * @return number of records dropped after failing maxAttempts times
+	 */
+	public synchronized long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * Stop the periodic flush and write out whatever is still buffered, called by
+	 * Spring when the context closes.
+	 */
+	public void shutdown() {
+		flushExecutor.shutdown();
+		try {
+			flushExecutor.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for (int attempt = 1; attempt <= SHUTDOWN_FLUSH_ATTEMPTS; attempt++) {
+			if (flush())
+				return;
+		}
+		log.error("write-behind shut down with [" + (getPending() + getSetAside()) + "] records unsaved");
+	}
+
+	/**
+	 * Add records to the buffer, later saves of a key replacing earlier ones, then
+	 * flush in the calling thread if the buffer is full. When the buffer is already
+	 * full and a flush can't empty it, the save is refused.
+	 * 
+	 * @param Parents
+	 * @param Pets, need their phone number set
+	 * @throws IllegalStateException when the buffer is full and can't be written out
+	 */
+	private void buffer(List<Parent> parents, List<Pet> pets) {
+		if (getPending() + getSetAside() >= maxPending) {
+			flush();
+			int held = getPending() + getSetAside();
+			if (held >= maxPending)
+				throw new IllegalStateException("write-behind buffer is full with [" + held + "] records that could not be written");
+		}
+		
+		int pending;
+		synchronized (this) {
+			for (Parent parent: parents) {
+				CustomerRepositoryImpl.assignKeys(parent);
+				pendingParents.put(parentKey(parent), parent);
+				setAsideParents.remove(parentKey(parent));
+				parentAttempts.remove(parentKey(parent));
+			}
+			for (Pet pet: pets) {
+				CustomerRepositoryImpl.assignKeys(pet);
+				pendingPets.put(petKey(pet), pet);
+				setAsidePets.remove(petKey(pet));
+				petAttempts.remove(petKey(pet));
+			}
+			pending = pendingParents.size() + pendingPets.size();
+		}
+
+		if (pending >= maxPending)
+			flush();
+	}
+
+	/**
+	 * Set aside the records of a failed chunk, skipping any saved again since, and
+	 * drop the ones that have now failed maxAttempts times.
+	 * 
+	 * @param failed chunk
+	 */
+	private synchronized void setAside(Chunk chunk) {
+		for (Parent parent: chunk.parents) {
+			String key = parentKey(parent);
+			if (pendingParents.containsKey(key))
+				continue;
+			int attempts = parentAttempts.merge(key, 1, Integer::sum);
+			if (attempts < maxAttempts) {
+				setAsideParents.put(key, parent);
+			} else {
+				parentAttempts.remove(key);
+				drop(key, attempts);
+			}
+		}
+		for (Pet pet: chunk.pets) {
+			PetKey key = petKey(pet);
+			if (pendingPets.containsKey(key))
+				continue;
+			int attempts = petAttempts.merge(key, 1, Integer::sum);
+			if (attempts < maxAttempts) {
+				setAsidePets.put(key, pet);
+			} else {
+				petAttempts.remove(key);
+				drop(key, attempts);
+			}
+		}
+	}
+
+	// Caller holds the lock.
+	private void drop(Object key, int attempts) {
+		dropped++;
+		log.error("write-behind dropped record [" + key + "] after [" + attempts + "] failed writes, the save is lost");
+	}
+
+	/**
+	 * Forget the failed writes of records that have now been written.
+	 * 
+	 * @param written chunk
+	 */
+	private synchronized void clearAttempts(Chunk chunk) {
+		chunk.parents.forEach(parent -> parentAttempts.remove(parentKey(parent)));
+		chunk.pets.forEach(pet -> petAttempts.remove(petKey(pet)));
+	}
+
+	/**
+	 * Latest buffered Parent for a customer, pending saves winning over in-flight ones.
+	 * 
+	 * @param customer id
+	 * @return buffered Parent or null
+	 */
+	private synchronized Parent bufferedParent(String customerId) {
+		Parent found = null;
+		for (Parent parent: setAsideParents.values()) {
+			if (customerId.equals(parent.getCustomerId()))
+				found = parent;
+		}
+		for (Parent parent: inflightParents.values()) {
+			if (customerId.equals(parent.getCustomerId()))
+				found = parent;
+		}
+		for (Parent parent: pendingParents.values()) {
+			if (customerId.equals(parent.getCustomerId()))
+				found = parent;
+		}
+		return found;
+	}
+
+	private synchronized Pet bufferedPet(PetKey petKey) {
+		Pet pet = pendingPets.get(petKey);
+		if (pet == null)
+			pet = inflightPets.get(petKey);
+		return (pet != null) ? pet : setAsidePets.get(petKey);
+	}
+
+	private synchronized List<Pet> bufferedPets(String customerId) {
+		Map<PetKey,Pet> pets = new LinkedHashMap<>();
+		setAsidePets.forEach((petKey, pet) -> {
+			if (customerId.equals(petKey.getCustomerId()))
+				pets.put(petKey, pet);
+		});
+		inflightPets.forEach((petKey, pet) -> {
+			if (customerId.equals(petKey.getCustomerId()))
+				pets.put(petKey, pet);
+		});
+		pendingPets.forEach((petKey, pet) -> {
+			if (customerId.equals(petKey.getCustomerId()))
+				pets.put(petKey, pet);
+		});
+		return new ArrayList<Pet>(pets.values());
+	}
+
+	/**
+	 * Lay a customer's buffered parent and pets over what was read from the table.
+	 * The buffered Parent belongs to whoever saved it and may be mid-flush, so the
+	 * result is a copy rather than the buffered object with its pets replaced.
+	 * 
+	 * @param customer id
+	 * @param stored Parent with Pets, may be null
+	 * @return Parent with Pets, or null if there is no parent stored or buffered
+	 */
+	private Parent overlay(String customerId, Parent stored) {
+		Parent buffered = bufferedParent(customerId);
+		List<Pet> bufferedPets = bufferedPets(customerId);
+
+		if (buffered == null && bufferedPets.isEmpty())
+			return stored;
+
+		Parent source = (buffered != null) ? buffered : stored;
+		if (source == null)
+			return null;
+
+		Parent parent = new Parent();
+		parent.setCustomerId(source.getCustomerId());
+		parent.setId(source.getId());
+		parent.setFirstName(source.getFirstName());
+		parent.setLastName(source.getLastName());
+		parent.setPhoneNumber(source.getPhoneNumber());
+		if (source.getAddress() != null)
+			parent.setAddress(new LinkedHashMap<String,String>(source.getAddress()));
+		parent.setPets(mergePets((stored != null) ? stored.getPets() : null, bufferedPets));
+		return parent;
+	}
+
+	/**
+	 * Combine stored pets with buffered ones, buffered versions replacing stored ones.
+	 * 
+	 * @param stored Pets, may be null
+	 * @param buffered Pets
+	 * @return sorted Pets
+	 */
+	private List<Pet> mergePets(List<Pet> storedPets, List<Pet> bufferedPets) {
+		Map<String,Pet> pets = new LinkedHashMap<>();
+		if (storedPets != null)
+			storedPets.forEach(pet -> pets.put(pet.getId(), pet));
+		bufferedPets.forEach(pet -> pets.put(pet.getId(), pet));
+
+		List<Pet> results = new ArrayList<Pet>(pets.values());
+		Collections.sort(results);
+		return results;
+	}
+
+	private static String parentKey(Parent parent) {
+		return parent.getCustomerId() + parent.getId();
+	}
+
+	private static PetKey petKey(Pet pet) {
+		return PetKey.of(pet.getCustomerId(), pet.getId());
+	}
+
+	/**
+	 * Records written together in one saveParentsAndPets call.
+	 */
+	private static class Chunk {
+		private List<Parent> parents = new ArrayList<Parent>();
+		private List<Pet> pets = new ArrayList<Pet>();
+
+		private Chunk add(Parent parent) {
+			parents.add(parent);
+			return this;
+		}
+
+		private Chunk add(Pet pet) {
+			pets.add(pet);
+			return this;
+		}
+
+		private int size() {
+			return parents.size() + pets.size();
+		}
+
+		@Override
+		public String toString() {
+			List<String> keys = new ArrayList<String>();
+			parents.forEach(parent -> keys.add(parentKey(parent)));
+			pets.forEach(pet -> keys.add(petKey(pet).toString()));
+			return keys.toString();
+		}
+	}
+}
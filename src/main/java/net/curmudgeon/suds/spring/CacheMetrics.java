@@ -0,0 +1,58 @@
+package net.curmudgeon.suds.spring;
+
+import java.util.List;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.curmudgeon.suds.util.ExpiringCache;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Publishes size, hit, miss and eviction counts for the in-process caches, tagged
+ * by cache name (see /actuator/metrics/suds.cache.hits).
+ */
+public class CacheMetrics implements MeterBinder {
+
+	private List<ExpiringCache<?,?>> caches;
+
+	public CacheMetrics(List<ExpiringCache<?,?>> caches) {
+		this.caches = caches;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		for (ExpiringCache<?,?> cache: caches) {
+			Gauge.builder("suds.cache.size", cache, ExpiringCache::size)
+					.tag("cache", cache.getName())
+					.description("Number of entries in the cache")
+					.register(registry);
+			FunctionCounter.builder("suds.cache.hits", cache, ExpiringCache::getHits)
+					.tag("cache", cache.getName())
+					.description("Lookups served from the cache")
+					.register(registry);
+			FunctionCounter.builder("suds.cache.misses", cache, ExpiringCache::getMisses)
+					.tag("cache", cache.getName())
+					.description("Lookups that went to DynamoDB")
+					.register(registry);
+			FunctionCounter.builder("suds.cache.evictions", cache, ExpiringCache::getEvictions)
+					.tag("cache", cache.getName())
+					.description("Entries dropped for size or age")
+					.register(registry);
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package net.curmudgeon.suds.spring;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.repository.CustomerRepository;
+import net.curmudgeon.suds.repository.GroomerRepository;
+import net.curmudgeon.suds.repository.ScheduleRepository;
+import net.curmudgeon.suds.util.PetKey;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Fills the caches at startup. Spring Boot only switches readiness to accepting
+ * traffic once every application runner has returned, so /actuator/health/readiness
+ * keeps load balancers away until this is done. Loads all current groomers, then
+ * the parents and pets booked over the next few days, which is the customer set
+ * worth having warm. The schedule itself isn't cached, it's read (one query per day,
+ * side by side) only to find those customers. A failed warm-up is logged and startup
+ * carries on with cold caches.
+ */
+public class CacheWarmer implements ApplicationRunner {
+	private static final Logger log = LogManager.getLogger(CacheWarmer.class);
+
+	private GroomerRepository groomerRepository;
+	private CustomerRepository customerRepository;
+	private ScheduleRepository scheduleRepository;
+	private int scheduleDays;
+	private int threads;
+
+	/**
+	 * @param groomer repository, caching
+	 * @param customer repository, caching
+	 * @param schedule repository
+	 * @param number of days, starting today, to look for booked customers
+	 * @param number of reads to run at once
+	 */
+	public CacheWarmer(GroomerRepository groomerRepository, CustomerRepository customerRepository,
+			ScheduleRepository scheduleRepository, int scheduleDays, int threads) {
+		this.groomerRepository = groomerRepository;
+		this.customerRepository = customerRepository;
+		this.scheduleRepository = scheduleRepository;
+		this.scheduleDays = Math.max(0, scheduleDays);
+		this.threads = Math.max(1, threads);
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long start = System.nanoTime();
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("suds-warm-up-"));
+
+		try {
+			Future<List<Groomer>> groomers = executor.submit(groomerRepository::getAllGroomers);
+
+			List<Future<List<Schedule>>> days = new ArrayList<>();
+			LocalDate today = LocalDate.now();
+			for (int day = 0; day < scheduleDays; day++) {
+				LocalDate date = today.plusDays(day);
+				days.add(executor.submit(() -> scheduleRepository.getSchedule(date.atStartOfDay(), date.atTime(LocalTime.MAX))));
+			}
+
+			// Collect the customers and pets with upcoming appointments.
+			int scheduleCount = 0;
+			Set<String> customerIds = new LinkedHashSet<String>();
+			Map<PetKey,Pet> petKeys = new LinkedHashMap<>();
+			for (Future<List<Schedule>> day: days) {
+				for (Schedule schedule: day.get()) {
+					scheduleCount++;
+					customerIds.add(schedule.getCustomerId());
+					PetKey petKey = PetKey.of(schedule.getCustomerId(), schedule.getPetId());
+					if (!petKeys.containsKey(petKey)) {
+						Pet pet = new Pet();
+						pet.setCustomerId(petKey.getCustomerId());
+						pet.setId(petKey.getPetId());
+						petKeys.put(petKey, pet);
+					}
+				}
+			}
+
+			// The repository already runs the parent queries side by side.
+			Future<List<Parent>> parents = executor.submit(() -> customerRepository.getParentsByCustomerIds(customerIds));
+			Future<List<Pet>> pets = executor.submit(() -> customerRepository.getPets(petKeys.values()));
+
+			log.info("warm-up cached [" + groomers.get().size() + "] groomers plus [" + parents.get().size() + "] parents and ["
+					+ pets.get().size() + "] pets booked in [" + scheduleCount + "] schedule entries over the next ["
+					+ scheduleDays + "] days, in " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms");
+		} catch (ExecutionException e) {
+			log.warn("warm-up failed after " + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+					+ "ms, starting with cold caches", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.warn("warm-up interrupted, starting with cold caches");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
@@ -1,20 +1,47 @@
 package net.curmudgeon.suds.spring;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.UnaryOperator;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.web.context.annotation.RequestScope;
 
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.curmudgeon.suds.controller.request.CursorCodec;
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.repository.CachingCustomerRepository;
+import net.curmudgeon.suds.repository.CachingGroomerRepository;
 import net.curmudgeon.suds.repository.CustomerRepository;
 import net.curmudgeon.suds.repository.CustomerRepositoryImpl;
 import net.curmudgeon.suds.repository.GroomerRepository;
 import net.curmudgeon.suds.repository.GroomerRepositoryImpl;
+import net.curmudgeon.suds.repository.ParallelScanner;
+import net.curmudgeon.suds.repository.ParallelWriter;
 import net.curmudgeon.suds.repository.ScheduleRepository;
 import net.curmudgeon.suds.repository.ScheduleRepositoryImpl;
+import net.curmudgeon.suds.repository.WriteBehindCustomerRepository;
+import net.curmudgeon.suds.util.ExpiringCache;
+import net.curmudgeon.suds.util.IdentityMap;
+import net.curmudgeon.suds.util.PetKey;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
@@ -44,6 +71,57 @@ public class DynamoDbConfig {
 
 	@Value("${amazon.aws.secretkey}")
 	private String amazonAWSSecretKey;
+
+	@Value("${suds.scan.segments:1}")
+	private int scanSegments;
+
+	@Value("${suds.scan.threads:4}")
+	private int scanThreads;
+
+	@Value("${suds.cache.parent.size:500}")
+	private int parentCacheSize;
+
+	@Value("${suds.cache.parent.ttl-seconds:300}")
+	private long parentCacheTtlSeconds;
+
+	@Value("${suds.cache.pet.size:1000}")
+	private int petCacheSize;
+
+	@Value("${suds.cache.pet.ttl-seconds:300}")
+	private long petCacheTtlSeconds;
+
+	@Value("${suds.cache.missing.size:1000}")
+	private int missingCacheSize;
+
+	@Value("${suds.cache.missing.ttl-seconds:30}")
+	private long missingCacheTtlSeconds;
+
+	@Value("${suds.cache.groomer.size:100}")
+	private int groomerCacheSize;
+
+	@Value("${suds.cache.groomer.ttl-seconds:600}")
+	private long groomerCacheTtlSeconds;
+
+	@Value("${suds.write-behind.window-millis:1000}")
+	private long writeBehindWindowMillis;
+
+	@Value("${suds.write-behind.max-pending:500}")
+	private int writeBehindMaxPending;
+
+	@Value("${suds.write-behind.max-attempts:5}")
+	private int writeBehindMaxAttempts;
+
+	@Value("${suds.cursor.secret:}")
+	private String cursorSecret;
+
+	@Value("${suds.warm-up.schedule-days:7}")
+	private int warmUpScheduleDays;
+
+	@Value("${suds.warm-up.threads:4}")
+	private int warmUpThreads;
+
+	@Value("${suds.import.concurrency:4}")
+	private int importConcurrency;
 	
 	@Bean
 	public DynamoDbEnhancedClient dynamoDbEnhancedClient() {
@@ -73,20 +151,120 @@ public class DynamoDbConfig {
 	}
 	
 	@Bean
-	public CustomerRepository customerRepository() {
-		CustomerRepository customerRepository = new CustomerRepositoryImpl(dynamoDbEnhancedClient());
+	public ParallelScanner parallelScanner() {
+		ExecutorService scanExecutor = Executors.newFixedThreadPool(scanThreads, new CustomizableThreadFactory("suds-scan-"));
+		return new ParallelScanner(scanExecutor, scanSegments);
+	}
+	
+	@Bean
+	public ParallelWriter parallelWriter() {
+		ExecutorService importExecutor = Executors.newFixedThreadPool(importConcurrency, new CustomizableThreadFactory("suds-import-"));
+		return new ParallelWriter(importExecutor, importConcurrency);
+	}
+	
+	@Bean
+	public CursorCodec cursorCodec() {
+		return new CursorCodec(cursorSecret);
+	}
+	
+	@Bean
+	@RequestScope
+	public IdentityMap identityMap() {
+		return new IdentityMap();
+	}
+	
+	@Bean
+	@Primary
+	public CustomerRepository customerRepository(ObjectProvider<WriteBehindCustomerRepository> writeBehindCustomerRepository) {
+		CustomerRepository writer = writeBehindCustomerRepository.getIfAvailable();
+		if (writer == null)
+			writer = new CustomerRepositoryImpl(dynamoDbEnhancedClient(), dynamoDbClient(), parallelScanner());
+		
+		CustomerRepository customerRepository = new CachingCustomerRepository(
+				writer, parentCache(), petCache(), missingCustomerCache());
 		return customerRepository;
 	}
 	
+	// Its own bean so Spring calls shutdown() and flushes the buffer when the context closes.
+	@Bean
+	@ConditionalOnProperty(name = "suds.write-behind.enabled", havingValue = "true")
+	public WriteBehindCustomerRepository writeBehindCustomerRepository() {
+		ScheduledExecutorService flushExecutor = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("suds-write-behind-"));
+		return new WriteBehindCustomerRepository(
+				new CustomerRepositoryImpl(dynamoDbEnhancedClient(), dynamoDbClient(), parallelScanner()),
+				flushExecutor, writeBehindWindowMillis, writeBehindMaxPending, writeBehindMaxAttempts);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "suds.write-behind.enabled", havingValue = "true")
+	public MeterBinder writeBehindMetrics(WriteBehindCustomerRepository writeBehindCustomerRepository) {
+		return new WriteBehindMetrics(writeBehindCustomerRepository);
+	}
+	
+	@Bean
+	public ExpiringCache<String,Parent> parentCache() {
+		return new ExpiringCache<String,Parent>("parent", parentCacheSize, Duration.ofSeconds(parentCacheTtlSeconds), copyOf(Parent.class));
+	}
+	
+	@Bean
+	public ExpiringCache<PetKey,Pet> petCache() {
+		return new ExpiringCache<PetKey,Pet>("pet", petCacheSize, Duration.ofSeconds(petCacheTtlSeconds), copyOf(Pet.class));
+	}
+	
+	@Bean
+	public ExpiringCache<String,Groomer> groomerCache() {
+		return new ExpiringCache<String,Groomer>("groomer", groomerCacheSize, Duration.ofSeconds(groomerCacheTtlSeconds), copyOf(Groomer.class));
+	}
+	
+	@Bean
+	public ExpiringCache<String,Boolean> missingCustomerCache() {
+		return new ExpiringCache<String,Boolean>("customer-missing", missingCacheSize, Duration.ofSeconds(missingCacheTtlSeconds));
+	}
+	
+	@Bean
+	public ExpiringCache<String,Boolean> missingGroomerCache() {
+		return new ExpiringCache<String,Boolean>("groomer-missing", missingCacheSize, Duration.ofSeconds(missingCacheTtlSeconds));
+	}
+	
+	// Round trip through the table schema, a deep copy of every stored attribute.
+	private static <T> UnaryOperator<T> copyOf(Class<T> type) {
+		TableSchema<T> schema = TableSchema.fromBean(type);
+		return item -> schema.mapToItem(schema.itemToMap(item, true));
+	}
+	
+	@Bean
+	public MeterBinder cacheMetrics(List<ExpiringCache<?,?>> caches) {
+		return new CacheMetrics(caches);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "suds.groomer.backfill.enabled", havingValue = "true")
+	public ApplicationRunner groomerIndexBackfill() {
+		return new IndexBackfill(Groomer.CURRENT_INDEX, new GroomerRepositoryImpl(dynamoDbEnhancedClient())::backfillCurrentIndex);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "suds.schedule.backfill.enabled", havingValue = "true")
+	public ApplicationRunner scheduleIndexBackfill() {
+		return new IndexBackfill(Schedule.DAY_INDEX, new ScheduleRepositoryImpl(dynamoDbEnhancedClient(), dynamoDbClient())::backfillAppointmentDay);
+	}
+	
+	@Bean
+	@ConditionalOnProperty(name = "suds.warm-up.enabled", havingValue = "true", matchIfMissing = true)
+	public ApplicationRunner cacheWarmer(CustomerRepository customerRepository) {
+		return new CacheWarmer(groomerRepository(), customerRepository, scheduleRepository(), warmUpScheduleDays, warmUpThreads);
+	}
+	
 	@Bean
 	public GroomerRepository groomerRepository() {
-		GroomerRepository groomerRepository = new GroomerRepositoryImpl(dynamoDbEnhancedClient());
+		GroomerRepository groomerRepository = new CachingGroomerRepository(
+				new GroomerRepositoryImpl(dynamoDbEnhancedClient()), groomerCache(), missingGroomerCache());
 		return groomerRepository;
 	}
 
 	@Bean
 	public ScheduleRepository scheduleRepository() {
-		ScheduleRepository scheduleRepository = new ScheduleRepositoryImpl(dynamoDbEnhancedClient());
+		ScheduleRepository scheduleRepository = new ScheduleRepositoryImpl(dynamoDbEnhancedClient(), dynamoDbClient());
 		return scheduleRepository;
 	}
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package net.curmudgeon.suds.spring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Runs a one-off index migration at startup, adding a sparse index's key to records
+ * saved before the index existed. Each one scans a whole table, so they are only
+ * registered when their suds.*.backfill.enabled property is set. Runs ahead of the
+ * other application runners, so the cache warm-up already sees the migrated records.
+ * A failed backfill is logged and startup carries on, the records it missed stay out
+ * of the index reads until it succeeds or they are saved again.
+ */
+public class IndexBackfill implements ApplicationRunner, Ordered {
+	private static final Logger log = LogManager.getLogger(IndexBackfill.class);
+
+	private String name;
+	private IntSupplier backfill;
+
+	/**
+	 * @param name of the index, for logging
+	 * @param backfill returning the number of records updated
+	 */
+	public IndexBackfill(String name, IntSupplier backfill) {
+		this.name = name;
+		this.backfill = backfill;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		long start = System.nanoTime();
+		try {
+			int updated = backfill.getAsInt();
+			log.info("added the " + name + " key to [" + updated + "] records in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + "ms, the backfill can be turned off again");
+		} catch (RuntimeException e) {
+			log.warn(name + " backfill failed, records saved before the index may be missing from reads", e);
+		}
+	}
+}
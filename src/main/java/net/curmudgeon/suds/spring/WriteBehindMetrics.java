@@ -0,0 +1,47 @@
+package net.curmudgeon.suds.spring;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import net.curmudgeon.suds.repository.WriteBehindCustomerRepository;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Publishes the write-behind buffer's pending, set aside and dropped record counts
+ * (see /actuator/metrics/suds.write-behind.dropped).
+ */
+public class WriteBehindMetrics implements MeterBinder {
+
+	private WriteBehindCustomerRepository writeBehind;
+
+	public WriteBehindMetrics(WriteBehindCustomerRepository writeBehind) {
+		this.writeBehind = writeBehind;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		Gauge.builder("suds.write-behind.pending", writeBehind, WriteBehindCustomerRepository::getPending)
+				.description("Records waiting for the next flush")
+				.register(registry);
+		Gauge.builder("suds.write-behind.set-aside", writeBehind, WriteBehindCustomerRepository::getSetAside)
+				.description("Records retried on their own after a failed write")
+				.register(registry);
+		FunctionCounter.builder("suds.write-behind.dropped", writeBehind, WriteBehindCustomerRepository::getDropped)
+				.description("Records given up on after repeated failed writes")
+				.register(registry);
+	}
+}
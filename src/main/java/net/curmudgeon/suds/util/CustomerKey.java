@@ -0,0 +1,71 @@
+package net.curmudgeon.suds.util;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Partition key shared by a customer's Parent and Pet items, "CUSTOMER#" followed
+ * by the digits of the phone number.
+ */
+public final class CustomerKey {
+
+	public static final String PREFIX = "CUSTOMER#";
+
+	private final String customerId;
+
+	private CustomerKey(String customerId) {
+		this.customerId = customerId;
+	}
+
+	/**
+	 * Build the key from a phone number in any format, keeping only its digits.
+	 * 
+	 * @param phone number
+	 * @return customer key
+	 */
+	public static CustomerKey fromPhoneNumber(String phoneNumber) {
+		StringBuilder key = new StringBuilder(PREFIX.length() + KeyUtils.length(phoneNumber)).append(PREFIX);
+		KeyUtils.appendDigits(key, phoneNumber);
+		return new CustomerKey(key.toString());
+	}
+
+	/**
+	 * Wrap an existing customer id.
+	 * 
+	 * @param customer id
+	 * @return customer key
+	 */
+	public static CustomerKey of(String customerId) {
+		return new CustomerKey(customerId);
+	}
+
+	public String getCustomerId() {
+		return customerId;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof CustomerKey && customerId.equals(((CustomerKey) other).customerId);
+	}
+
+	@Override
+	public int hashCode() {
+		return customerId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return customerId;
+	}
+}
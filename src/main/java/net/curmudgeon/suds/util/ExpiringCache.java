@@ -0,0 +1,226 @@
+package net.curmudgeon.suds.util;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+import java.util.function.UnaryOperator;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Small in-process cache, bounded by entry count with least recently used eviction
+ * and an optional time to live. Keeps its own hit, miss and eviction counts.
+ * 
+ * The bound is a number of entries, not bytes, so size it from the records it holds;
+ * a customer or groomer is well under a kilobyte, so a few thousand entries is a few
+ * megabytes. Values can be copied going in and coming out, so callers never share a
+ * mutable cached object. A read-through put can be tied to the generation read before
+ * the lookup started, and is dropped if anything was invalidated in between, so a
+ * lookup racing a save can't put back the record the save replaced.
+ */
+public class ExpiringCache<K,V> {
+
+	private String name;
+	private int maxSize;
+	private long ttlNanos;
+	private LinkedHashMap<K,Entry<V>> entries;
+	private LongSupplier clock;
+	private UnaryOperator<V> copy;
+
+	// Guarded by this.
+	private long generation;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param name used when reporting statistics
+	 * @param maximum number of entries, 0 turns the cache off
+	 * @param time to live for each entry, null or zero for no expiry
+	 */
+	public ExpiringCache(String name, int maxSize, Duration ttl) {
+		this(name, maxSize, ttl, UnaryOperator.identity());
+	}
+
+	/**
+	 * @param name used when reporting statistics
+	 * @param maximum number of entries, 0 turns the cache off
+	 * @param time to live for each entry, null or zero for no expiry
+	 * @param copy of a value, made as it's cached and again each time it's returned
+	 */
+	public ExpiringCache(String name, int maxSize, Duration ttl, UnaryOperator<V> copy) {
+		this(name, maxSize, ttl, copy, System::nanoTime);
+	}
+
+	// Tests supply their own clock, in nanoseconds like System.nanoTime().
+	ExpiringCache(String name, int maxSize, Duration ttl, LongSupplier clock) {
+		this(name, maxSize, ttl, UnaryOperator.identity(), clock);
+	}
+
+	ExpiringCache(String name, int maxSize, Duration ttl, UnaryOperator<V> copy, LongSupplier clock) {
+		this.name = name;
+		this.clock = clock;
+		this.copy = copy;
+		this.maxSize = Math.max(0, maxSize);
+		this.ttlNanos = (ttl == null) ? 0 : ttl.toNanos();
+
+		// Access ordered, so the eldest entry is the least recently used one.
+		entries = new LinkedHashMap<K,Entry<V>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K,Entry<V>> eldest) {
+				if (size() > ExpiringCache.this.maxSize) {
+					evictions++;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public boolean isEnabled() {
+		return maxSize > 0;
+	}
+
+	/**
+	 * Look up an entry. Expired entries are dropped and counted as evictions.
+	 * 
+	 * @param key
+	 * @return cached value, or null on a miss
+	 */
+	public V get(K key) {
+		V value;
+		synchronized (this) {
+			Entry<V> entry = entries.get(key);
+			if (entry != null && entry.isExpired(clock.getAsLong())) {
+				entries.remove(key);
+				evictions++;
+				entry = null;
+			}
+
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+
+			hits++;
+			value = entry.value;
+		}
+		return copy.apply(value);
+	}
+
+	/**
+	 * Add or replace an entry, evicting the least recently used one if the cache is full.
+	 * Null values aren't cached.
+	 * 
+	 * @param key
+	 * @param value
+	 */
+	public void put(K key, V value) {
+		if (maxSize == 0 || value == null)
+			return;
+
+		V cached = copy.apply(value);
+		synchronized (this) {
+			store(key, cached);
+		}
+	}
+
+	/**
+	 * Add or replace an entry read from the backing store, unless something was
+	 * invalidated since the read began, in which case the value may be stale.
+	 * 
+	 * @param key
+	 * @param value
+	 * @param generation from getGeneration() before the read
+	 */
+	public void put(K key, V value, long generation) {
+		if (maxSize == 0 || value == null)
+			return;
+
+		V cached = copy.apply(value);
+		synchronized (this) {
+			if (this.generation == generation)
+				store(key, cached);
+		}
+	}
+
+	public synchronized void invalidate(K key) {
+		generation++;
+		entries.remove(key);
+	}
+
+	public synchronized void clear() {
+		generation++;
+		entries.clear();
+	}
+
+	/**
+	 * @return count of invalidations so far, to pass to put after a read
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	// Caller holds the lock.
+	private void store(K key, V value) {
+		long expiresAt = (ttlNanos == 0) ? 0 : clock.getAsLong() + ttlNanos;
+		entries.put(key, new Entry<V>(value, expiresAt));
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public String toString() {
+		return name + " [size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+	}
+
+	private static class Entry<V> {
+		private V value;
+		private long expiresAt;
+
+		private Entry(V value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean isExpired(long now) {
+			return expiresAt != 0 && now - expiresAt >= 0;
+		}
+	}
+}
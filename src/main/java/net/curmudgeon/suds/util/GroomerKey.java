@@ -0,0 +1,78 @@
+package net.curmudgeon.suds.util;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Partition key of a Groomer, "GROOMER#" followed by the employee number, and the
+ * version sort keys. The "v0" record always holds the current version.
+ */
+public final class GroomerKey {
+
+	public static final String PREFIX = "GROOMER#";
+	public static final String CURRENT_VERSION = "v0";
+
+	private final String groomerId;
+
+	private GroomerKey(String groomerId) {
+		this.groomerId = groomerId;
+	}
+
+	/**
+	 * Build the key from an employee number, which is used as is.
+	 * 
+	 * @param employee number
+	 * @return groomer key
+	 */
+	public static GroomerKey fromEmployeeNumber(String employeeNumber) {
+		return new GroomerKey(PREFIX.concat(String.valueOf(employeeNumber)));
+	}
+
+	/**
+	 * Wrap an existing groomer id.
+	 * 
+	 * @param groomer id
+	 * @return groomer key
+	 */
+	public static GroomerKey of(String groomerId) {
+		return new GroomerKey(groomerId);
+	}
+
+	/**
+	 * @param version number, 1 and up
+	 * @return sort key of that version's record
+	 */
+	public static String version(int version) {
+		return "v" + version;
+	}
+
+	public String getGroomerId() {
+		return groomerId;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof GroomerKey && groomerId.equals(((GroomerKey) other).groomerId);
+	}
+
+	@Override
+	public int hashCode() {
+		return groomerId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return groomerId;
+	}
+}
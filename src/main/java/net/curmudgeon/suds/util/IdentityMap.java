@@ -0,0 +1,116 @@
+package net.curmudgeon.suds.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Identity map for one unit of work (registered as a request scoped bean). Each
+ * key of each entity type is loaded at most once, including keys that turned out
+ * not to exist, and later lookups get the same object back.
+ */
+public class IdentityMap {
+	private static final Logger log = LogManager.getLogger(IdentityMap.class);
+
+	private Map<String,Map<Object,Object>> entities = new HashMap<>();
+	private int loaded;
+	private int duplicates;
+
+	/**
+	 * Resolve a single entity, loading it on first use.
+	 * 
+	 * @param entity type, keeps keys of different types apart
+	 * @param key
+	 * @param loader returning the entity or null if it doesn't exist
+	 * @return matching entity or null
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <K,V> V resolve(String type, K key, Function<K,V> loader) {
+		Map<Object,Object> known = entities.computeIfAbsent(type, name -> new HashMap<>());
+		if (known.containsKey(key)) {
+			duplicates++;
+			return (V) known.get(key);
+		}
+
+		V entity = loader.apply(key);
+		known.put(key, entity);
+		loaded++;
+		return entity;
+	}
+
+	/**
+	 * Resolve a set of entities, loading only the keys not seen yet in one call.
+	 * Repeated keys, within this call or from earlier ones, count as duplicates.
+	 * 
+	 * @param entity type, keeps keys of different types apart
+	 * @param keys, may contain repeats
+	 * @param loader given the distinct unseen keys, returning the entities found by key
+	 * @return entities by key, keys that don't exist are left out
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized <K,V> Map<K,V> resolveAll(String type, Collection<K> keys, Function<List<K>,Map<K,V>> loader) {
+		Map<Object,Object> known = entities.computeIfAbsent(type, name -> new HashMap<>());
+
+		Set<K> unseen = new LinkedHashSet<K>();
+		for (K key: keys) {
+			if (known.containsKey(key) || !unseen.add(key))
+				duplicates++;
+		}
+
+		if (!unseen.isEmpty()) {
+			Map<K,V> found = loader.apply(new ArrayList<K>(unseen));
+			unseen.forEach(key -> known.put(key, found.get(key)));
+			loaded += unseen.size();
+		}
+
+		Map<K,V> results = new LinkedHashMap<>();
+		for (K key: keys) {
+			V entity = (V) known.get(key);
+			if (entity != null)
+				results.put(key, entity);
+		}
+		return results;
+	}
+
+	public synchronized int getLoaded() {
+		return loaded;
+	}
+
+	public synchronized int getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Report what the unit of work saved, called when the request completes.
+	 */
+	@PreDestroy
+	public synchronized void report() {
+		if (loaded > 0 || duplicates > 0)
+			log.debug("identity map loaded [" + loaded + "] keys and avoided [" + duplicates + "] duplicate lookups");
+	}
+}
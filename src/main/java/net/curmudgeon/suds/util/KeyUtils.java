@@ -22,12 +22,59 @@ public class KeyUtils {
 	private KeyUtils() {}
 	
 	/**
-	 * Scrubs and formats string for keys.
+	 * Scrubs and formats string for keys, keeping only ASCII letters and digits and
+	 * upper casing the letters. Done in a single pass without a regular expression.
 	 * 
 	 * @param string
 	 * @return formatted string
 	 */
 	public static String formatStringForKey(String name) {
-		return name.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
-	}	
+		StringBuilder key = new StringBuilder(name.length());
+		appendAlphanumeric(key, name);
+		return key.toString();
+	}
+
+	/**
+	 * Append the ASCII letters and digits of a value, letters upper cased.
+	 * 
+	 * @param key being built
+	 * @param value, may be null
+	 */
+	static void appendAlphanumeric(StringBuilder key, String value) {
+		if (value == null)
+			return;
+		
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c >= 'a' && c <= 'z')
+				key.append((char) (c - ('a' - 'A')));
+			else if ((c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))
+				key.append(c);
+		}
+	}
+
+	/**
+	 * Append the digits of a value.
+	 * 
+	 * @param key being built
+	 * @param value, may be null
+	 */
+	static void appendDigits(StringBuilder key, String value) {
+		if (value == null)
+			return;
+		
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (Character.isDigit(c))
+				key.append(c);
+		}
+	}
+
+	/**
+	 * @param value, may be null
+	 * @return length to size a builder with
+	 */
+	static int length(String value) {
+		return (value == null) ? 0 : value.length();
+	}
 }
@@ -0,0 +1,70 @@
+package net.curmudgeon.suds.util;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Key of a Parent item, the customer partition key plus "PARENT#" followed by the
+ * scrubbed first and last names.
+ */
+public final class ParentKey {
+
+	public static final String PREFIX = "PARENT#";
+
+	private final CustomerKey customerKey;
+	private final String id;
+
+	private ParentKey(CustomerKey customerKey, String id) {
+		this.customerKey = customerKey;
+		this.id = id;
+	}
+
+	/**
+	 * Build the key from the parent's names in a single pass.
+	 * 
+	 * @param customer key
+	 * @param first name
+	 * @param last name
+	 * @return parent key
+	 */
+	public static ParentKey of(CustomerKey customerKey, String firstName, String lastName) {
+		StringBuilder key = new StringBuilder(PREFIX.length() + KeyUtils.length(firstName) + KeyUtils.length(lastName)).append(PREFIX);
+		KeyUtils.appendAlphanumeric(key, firstName);
+		KeyUtils.appendAlphanumeric(key, lastName);
+		return new ParentKey(customerKey, key.toString());
+	}
+
+	public String getCustomerId() {
+		return customerKey.getCustomerId();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ParentKey && customerKey.equals(((ParentKey) other).customerKey) && id.equals(((ParentKey) other).id);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * customerKey.hashCode() + id.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return getCustomerId() + id;
+	}
+}
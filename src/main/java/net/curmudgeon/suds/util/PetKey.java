@@ -0,0 +1,82 @@
+package net.curmudgeon.suds.util;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Key of a Pet item, the customer partition key plus "PET#" followed by the scrubbed
+ * pet name. The combined encoding is built once and used for hashing and as the
+ * key of in-memory maps.
+ */
+public final class PetKey {
+
+	public static final String PREFIX = "PET#";
+
+	private final String customerId;
+	private final String petId;
+	private final String encoded;
+
+	private PetKey(String customerId, String petId) {
+		this.customerId = customerId;
+		this.petId = petId;
+		this.encoded = customerId + petId;
+	}
+
+	/**
+	 * Build the key from a pet name in a single pass.
+	 * 
+	 * @param customer key
+	 * @param pet name
+	 * @return pet key
+	 */
+	public static PetKey of(CustomerKey customerKey, String name) {
+		StringBuilder key = new StringBuilder(PREFIX.length() + KeyUtils.length(name)).append(PREFIX);
+		KeyUtils.appendAlphanumeric(key, name);
+		return new PetKey(customerKey.getCustomerId(), key.toString());
+	}
+
+	/**
+	 * Wrap an existing customer id and pet id.
+	 * 
+	 * @param customer id
+	 * @param pet id
+	 * @return pet key
+	 */
+	public static PetKey of(String customerId, String petId) {
+		return new PetKey(customerId, petId);
+	}
+
+	public String getCustomerId() {
+		return customerId;
+	}
+
+	public String getPetId() {
+		return petId;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof PetKey && encoded.equals(((PetKey) other).encoded);
+	}
+
+	@Override
+	public int hashCode() {
+		return encoded.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return encoded;
+	}
+}
@@ -0,0 +1,79 @@
+package net.curmudgeon.suds.util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Keys of a Schedule entry: the partition key, "SCHEDULE#" followed by the epoch
+ * second of the appointment, and the day bucket used by the day index.
+ */
+public final class ScheduleKey {
+
+	public static final String PREFIX = "SCHEDULE#";
+
+	private final String scheduleId;
+	private final String appointmentDay;
+
+	private ScheduleKey(String scheduleId, String appointmentDay) {
+		this.scheduleId = scheduleId;
+		this.appointmentDay = appointmentDay;
+	}
+
+	/**
+	 * Build the keys for an appointment time.
+	 * 
+	 * @param appointment time
+	 * @return schedule key
+	 */
+	public static ScheduleKey of(LocalDateTime appointmentTime) {
+		return new ScheduleKey(
+				PREFIX + appointmentTime.atZone(ZoneId.systemDefault()).toEpochSecond(),
+				day(appointmentTime.toLocalDate()));
+	}
+
+	/**
+	 * @param day
+	 * @return day index partition key for that day
+	 */
+	public static String day(LocalDate day) {
+		return day.toString();
+	}
+
+	public String getScheduleId() {
+		return scheduleId;
+	}
+
+	public String getAppointmentDay() {
+		return appointmentDay;
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof ScheduleKey && scheduleId.equals(((ScheduleKey) other).scheduleId);
+	}
+
+	@Override
+	public int hashCode() {
+		return scheduleId.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return scheduleId;
+	}
+}
@@ -0,0 +1,184 @@
+package net.curmudgeon.suds.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.curmudgeon.suds.SudsApplication;
+import net.curmudgeon.suds.controller.exception.MissingRecordException;
+import net.curmudgeon.suds.controller.response.ImportResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse.LineResult;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.repository.CustomerRepository;
+import net.curmudgeon.suds.repository.ParallelWriter;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.ExpiringCache;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Calls the customer controller directly with an import body.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = SudsApplication.class)
+@WebAppConfiguration
+@ActiveProfiles("local")
+@TestPropertySource(properties = { 
+		"amazon.dynamodb.endpoint=http://localhost:8000/", 
+		"amazon.aws.accesskey=accesskey1",
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
+@TestInstance(Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class CustomerControllerIntegrationTest {
+
+	@Autowired
+	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private CustomerController customerController;
+
+	@Autowired
+	@Qualifier("missingCustomerCache")
+	private ExpiringCache<String,Boolean> missingCustomerCache;
+
+	private static final String PHONE1 = "(410) 555-0201";
+	private static final String PHONE2 = "(410) 555-0202";
+	private static final String PHONE3 = "(410) 555-0206";
+
+	@BeforeAll
+	public void setup() throws Exception {
+		
+		// Create new, empty table.
+		DynamoDbTable<Parent> parentTable = dynamoDbEnhancedClient.table("Customer", TableSchema.fromBean(Parent.class));
+		try {
+			parentTable.deleteTable();
+		} catch (ResourceNotFoundException e) {
+			// Do nothing, table doesn't exist.
+		}
+		parentTable.createTable();
+	}
+	
+	@Test
+	public void a_testImportValidatesRejectsAndReportsFailedBatches() throws Exception {
+		
+		// A parent with 24 pets fills a batch of 25 items on its own.
+		List<String> pets = new ArrayList<String>();
+		for (int i = 1; i <= 24; i++)
+			pets.add("{\"name\": \"Pup" + i + "\", \"type\": \"Dog\"}");
+		
+		// One more and the customer no longer fits in a single batch.
+		List<String> tooManyPets = new ArrayList<String>(pets);
+		tooManyPets.add("{\"name\": \"Pup25\", \"type\": \"Dog\"}");
+		
+		// Notes over DynamoDB's 400KB item limit, so the whole batch holding it fails.
+		String notes = String.join("", Collections.nCopies(410 * 1024, "x"));
+		
+		String body = String.join("\n",
+				"{\"firstName\": \"Frankie\", \"lastName\": \"Miller\", \"phoneNumber\": \"" + PHONE1 + "\", \"pets\": [" + String.join(", ", pets) + "]}",
+				"{\"firstName\": \"Jo\", \"lastName\": \"Rivera\", \"phoneNumber\": \"(410) 555\"}",
+				"{\"firstName\": \"Jo\", ",
+				"{\"firstName\": \"Jo\", \"phoneNumber\": \"(410) 555-0203\"}",
+				"{\"firstName\": \"Jo\", \"lastName\": \"Rivera\", \"phoneNumber\": \"(410) 555-0204\", \"pets\": [{\"type\": \"Cat\"}]}",
+				"",
+				"{\"firstName\": \"Lee\", \"lastName\": \"Ortiz\", \"phoneNumber\": \"" + PHONE2 + "\", \"pets\": [{\"name\": \"Tank\", \"type\": \"Dog\", \"notes\": \"" + notes + "\"}]}",
+				"{\"firstName\": \"Sam\", \"lastName\": \"Miller\", \"phoneNumber\": \"410-555-0201\"}",
+				"{\"firstName\": \"Kit\", \"lastName\": \"Ames\", \"phoneNumber\": \"(410) 555-0205\", \"pets\": [" + String.join(", ", tooManyPets) + "]}");
+		
+		ImportResponse response = customerController.importParents(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+		
+		assertEquals(response.getReceived(), 8, "received " + response.getReceived() + " is not 8");
+		assertEquals(response.getImported(), 1, "imported " + response.getImported() + " is not 1");
+		
+		List<LineResult> rejected = response.getRejected();
+		assertEquals(rejected.size(), 6, "rejected size of " + rejected.size() + " does not equal 6");
+		assertTrue(rejected.get(0).getReason().contains("phoneNumber"), "line " + rejected.get(0).getLine() + " reason " + rejected.get(0).getReason());
+		assertTrue(rejected.get(1).getReason().startsWith("invalid JSON"), "line " + rejected.get(1).getLine() + " reason " + rejected.get(1).getReason());
+		assertTrue(rejected.get(2).getReason().contains("lastName"), "line " + rejected.get(2).getLine() + " reason " + rejected.get(2).getReason());
+		assertTrue(rejected.get(3).getReason().contains("pet needs a name"), "line " + rejected.get(3).getLine() + " reason " + rejected.get(3).getReason());
+		assertEquals(rejected.get(3).getLine(), 5, "rejected line " + rejected.get(3).getLine() + " is not 5");
+		
+		// Same customer as line 1, written differently.
+		assertEquals(rejected.get(4).getLine(), 8, "rejected line " + rejected.get(4).getLine() + " is not 8");
+		assertEquals(rejected.get(4).getReason(), "phoneNumber already imported on line 1", "line 8 reason " + rejected.get(4).getReason());
+		assertTrue(rejected.get(5).getReason().contains("pets per customer"), "line " + rejected.get(5).getLine() + " reason " + rejected.get(5).getReason());
+		
+		assertEquals(response.getFailed().size(), 1, "failed size of " + response.getFailed().size() + " does not equal 1");
+		assertEquals(response.getFailed().get(0).getLine(), 7, "failed line " + response.getFailed().get(0).getLine() + " is not 7");
+		assertEquals(response.getFailed().get(0).getReason(), ParallelWriter.WRITE_FAILED, "failed reason " + response.getFailed().get(0).getReason());
+		
+		// The good batch is stored, nothing from the failed one is.
+		Parent stored = customerRepository.getParentWithPets(PHONE1);
+		assertNotNull(stored);
+		assertEquals(stored.getPets().size(), 24, "size of " + stored.getPets().size() + " is not 24");
+		assertNull(customerRepository.getParentByPhoneNumber(PHONE2), "parent from the failed batch was written");
+	}
+
+	@Test
+	public void b_testMissingCustomerIsRemembered() throws Exception {
+		String customerId = CustomerKey.fromPhoneNumber(PHONE3).getCustomerId();
+		
+		// The first lookup goes to the table and leaves a missing marker behind.
+		assertThrows(MissingRecordException.class, () -> customerController.getParent(PHONE3));
+		assertNotNull(missingCustomerCache.get(customerId), "missing customer was not remembered");
+		
+		// The second is answered by the marker.
+		long hits = missingCustomerCache.getHits();
+		assertThrows(MissingRecordException.class, () -> customerController.getParent(PHONE3));
+		assertEquals(missingCustomerCache.getHits(), hits + 1, "missing customer lookup did not hit the cache");
+		
+		// Saving the customer clears the marker.
+		Parent parent = new Parent();
+		parent.setFirstName("Ada");
+		parent.setLastName("Quinn");
+		parent.setPhoneNumber(PHONE3);
+		customerController.saveParent(parent, false);
+		
+		Parent found = customerController.getParent(PHONE3);
+		assertEquals(found.getLastName(), "Quinn", "last name " + found.getLastName() + " is not Quinn");
+	}
+}
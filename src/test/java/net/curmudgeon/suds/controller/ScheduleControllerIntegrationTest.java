@@ -0,0 +1,207 @@
+package net.curmudgeon.suds.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.curmudgeon.suds.SudsApplication;
+import net.curmudgeon.suds.controller.response.ImportResponse;
+import net.curmudgeon.suds.controller.response.ImportResponse.LineResult;
+import net.curmudgeon.suds.entity.Groomer;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.repository.CustomerRepository;
+import net.curmudgeon.suds.repository.GroomerRepository;
+import net.curmudgeon.suds.repository.ScheduleRepository;
+import net.curmudgeon.suds.util.KeyUtils;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Calls the schedule controller directly, the test context supplies the request
+ * its identity map is scoped to.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = SudsApplication.class)
+@WebAppConfiguration
+@ActiveProfiles("local")
+@TestPropertySource(properties = { 
+		"amazon.dynamodb.endpoint=http://localhost:8000/", 
+		"amazon.aws.accesskey=accesskey1",
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
+@TestInstance(Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class ScheduleControllerIntegrationTest {
+
+	@Autowired
+	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+	@Autowired
+	private GroomerRepository groomerRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private ScheduleRepository scheduleRepository;
+
+	@Autowired
+	private ScheduleController scheduleController;
+
+	private static final String EMPLOYEE1 = "SUDS101";
+	private static final String PHONE1 = "(410) 555-0101";
+
+	@BeforeAll
+	public void setup() throws Exception {
+		
+		// Create new, empty tables.
+		DynamoDbTable<Groomer> groomerTable = dynamoDbEnhancedClient.table("Groomer", TableSchema.fromBean(Groomer.class));
+		try {
+			groomerTable.deleteTable();
+		} catch (ResourceNotFoundException e) {
+			// Do nothing, table doesn't exist.
+		}
+		groomerTable.createTable(CreateTableEnhancedRequest.builder()
+				.globalSecondaryIndices(allIndex(Groomer.CURRENT_INDEX))
+				.build());
+		
+		DynamoDbTable<Parent> parentTable = dynamoDbEnhancedClient.table("Customer", TableSchema.fromBean(Parent.class));
+		try {
+			parentTable.deleteTable();
+		} catch (ResourceNotFoundException e) {
+			// Do nothing, table doesn't exist.
+		}
+		parentTable.createTable();
+		
+		DynamoDbTable<Schedule> scheduleTable = dynamoDbEnhancedClient.table("Schedule", TableSchema.fromBean(Schedule.class));
+		try {
+			scheduleTable.deleteTable();
+		} catch (ResourceNotFoundException e) {
+			// Do nothing, table doesn't exist.
+		}
+		scheduleTable.createTable(CreateTableEnhancedRequest.builder()
+				.globalSecondaryIndices(
+						allIndex(Schedule.DAY_INDEX),
+						allIndex(Schedule.GROOMER_INDEX),
+						allIndex(Schedule.CUSTOMER_INDEX))
+				.build());
+		
+		// One groomer, and one customer with one pet.
+		Groomer groomer = new Groomer();
+		groomer.setEmployeeNumber(EMPLOYEE1);
+		groomer.setFirstName("Gail");
+		groomer.setLastName("Brushwood");
+		groomer.setHomePhoneNumber("(301) 555-0199");
+		groomerRepository.saveGroomer(groomer);
+		
+		Map<String,String> address = new HashMap<String,String>();
+		address.put("street", "9 Harbor Lane");
+		address.put("city", "Annapolis");
+		address.put("state", "MD");
+		address.put("zipCode", "21401");
+		
+		Parent parent = new Parent();
+		parent.setFirstName("Nora");
+		parent.setLastName("Quill");
+		parent.setPhoneNumber(PHONE1);
+		parent.setAddress(address);
+		customerRepository.saveParent(parent);
+		
+		Pet pet = new Pet();
+		pet.setPhoneNumber(PHONE1);
+		pet.setName("Biscuit");
+		pet.setType("Dog");
+		customerRepository.savePet(pet);
+	}
+	
+	// Global secondary index projecting all attributes.
+	private EnhancedGlobalSecondaryIndex allIndex(String indexName) {
+		return EnhancedGlobalSecondaryIndex.builder()
+				.indexName(indexName)
+				.projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+				.build();
+	}
+	
+	@Test
+	public void a_testImportRejectsBadLines() throws Exception {
+		String body = String.join("\n",
+				line("2023-02-06 09:00", EMPLOYEE1, PHONE1, "Biscuit"),
+				line("2023-02-06 10:00", "SUDS999", PHONE1, "Biscuit"),
+				line("2023-02-06 11:00", EMPLOYEE1, PHONE1, "Pickles"),
+				line("2023-02-06 09:00", EMPLOYEE1, PHONE1, "Biscuit"),
+				"",
+				"{\"appointmentTime\": ",
+				line("2023-02-06 13:00", EMPLOYEE1, PHONE1, "Biscuit"));
+		
+		ImportResponse response = scheduleController.importSchedules(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+		
+		assertEquals(response.getReceived(), 6, "received " + response.getReceived() + " is not 6");
+		assertEquals(response.getImported(), 2, "imported " + response.getImported() + " is not 2");
+		assertTrue(response.getFailed().isEmpty(), "failed lines " + response.getFailed());
+		
+		List<LineResult> rejected = response.getRejected();
+		assertEquals(rejected.size(), 4, "rejected size of " + rejected.size() + " does not equal 4");
+		assertEquals(rejected.get(0).getLine(), 2, "first rejected line " + rejected.get(0).getLine() + " is not 2");
+		assertTrue(rejected.get(0).getReason().contains("no groomer"), "reason " + rejected.get(0).getReason() + " is not a missing groomer");
+		assertEquals(rejected.get(1).getLine(), 3, "second rejected line " + rejected.get(1).getLine() + " is not 3");
+		assertTrue(rejected.get(1).getReason().contains("no pet"), "reason " + rejected.get(1).getReason() + " is not a missing pet");
+		assertEquals(rejected.get(2).getLine(), 4, "third rejected line " + rejected.get(2).getLine() + " is not 4");
+		assertTrue(rejected.get(2).getReason().contains("already booked on line 1"), "reason " + rejected.get(2).getReason() + " is not a duplicate time");
+		assertEquals(rejected.get(3).getLine(), 6, "fourth rejected line " + rejected.get(3).getLine() + " is not 6");
+		assertTrue(rejected.get(3).getReason().startsWith("invalid JSON"), "reason " + rejected.get(3).getReason() + " is not invalid JSON");
+		
+		// Only the good lines were written.
+		List<Schedule> saved = scheduleRepository.getSchedule(LocalDateTime.parse("2023-02-06T00:00:00"), LocalDateTime.parse("2023-02-06T23:59:59"));
+		assertEquals(saved.size(), 2, "saved size of " + saved.size() + " does not equal 2");
+		assertTrue(saved.stream().allMatch(schedule -> schedule.getPetId().equals("PET#" + KeyUtils.formatStringForKey("Biscuit"))), "saved an entry for the wrong pet");
+	}
+	
+	private String line(String appointmentTime, String employeeNumber, String phoneNumber, String petName) {
+		return "{\"appointmentTime\": \"" + appointmentTime + "\", \"employeeNumber\": \"" + employeeNumber
+				+ "\", \"phoneNumber\": \"" + phoneNumber + "\", \"petName\": \"" + petName + "\"}";
+	}
+}
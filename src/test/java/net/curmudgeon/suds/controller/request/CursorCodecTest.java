@@ -0,0 +1,105 @@
+package net.curmudgeon.suds.controller.request;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import net.curmudgeon.suds.controller.exception.BadRequestException;
+import net.curmudgeon.suds.controller.exception.RestExceptionHandler;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Cursors round trip, and anything edited, unsigned or issued for another list is
+ * turned away as a bad request.
+ */
+public class CursorCodecTest {
+
+	private static final String SCOPE = "schedule/2022-01-03T00:00/2022-01-10T23:59";
+
+	private CursorCodec cursorCodec = new CursorCodec("test-secret");
+
+	@Test
+	public void a_testRoundTrip() throws Exception {
+		String cursor = cursorCodec.encode(SCOPE, startKey());
+		assertNotNull(cursor);
+		assertEquals(cursorCodec.decode(SCOPE, cursor), startKey(), "decoded key is not the encoded key");
+		
+		assertNull(cursorCodec.encode(SCOPE, null), "no start key should mean no cursor");
+		assertNull(cursorCodec.decode(SCOPE, null), "no cursor should mean the first page");
+	}
+
+	@Test
+	public void b_testEditedCursorRejected() throws Exception {
+		byte[] bytes = Base64.getUrlDecoder().decode(cursorCodec.encode(SCOPE, startKey()));
+		
+		// Change the last character of the appointment time, the signature no longer matches.
+		int index = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("09:00");
+		bytes[index + 4] = '1';
+		String edited = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+		
+		assertBadRequest(() -> cursorCodec.decode(SCOPE, edited));
+	}
+
+	@Test
+	public void c_testWrongScopeRejected() throws Exception {
+		String cursor = cursorCodec.encode(SCOPE, startKey());
+		assertBadRequest(() -> cursorCodec.decode("groomer", cursor));
+		assertBadRequest(() -> new CursorCodec("another-secret").decode(SCOPE, cursor));
+	}
+
+	@Test
+	public void d_testGarbageRejected() throws Exception {
+		assertBadRequest(() -> cursorCodec.decode(SCOPE, "not a cursor!"));
+		assertBadRequest(() -> cursorCodec.decode(SCOPE, "AAAA"));
+	}
+
+	@Test
+	public void e_testRandomSecretWithoutConfiguration() throws Exception {
+		CursorCodec unconfigured = new CursorCodec("");
+		String cursor = unconfigured.encode(SCOPE, startKey());
+		assertEquals(unconfigured.decode(SCOPE, cursor), startKey(), "decoded key is not the encoded key");
+		
+		// Another instance makes up its own secret, so it can't read this one's cursors.
+		assertBadRequest(() -> new CursorCodec(null).decode(SCOPE, cursor));
+	}
+
+	// The rejection has to reach the client as a 400.
+	private void assertBadRequest(Runnable decode) {
+		BadRequestException e = assertThrows(BadRequestException.class, decode::run);
+		ResponseEntity<?> response = new RestExceptionHandler().handleBadRequestException(new MockHttpServletRequest(), e);
+		assertEquals(response.getStatusCode(), HttpStatus.BAD_REQUEST, "status " + response.getStatusCode() + " is not 400");
+	}
+
+	private Map<String,AttributeValue> startKey() {
+		Map<String,AttributeValue> startKey = new LinkedHashMap<>();
+		startKey.put("scheduleId", AttributeValue.builder().s("SCHEDULE#2022-01-03").build());
+		startKey.put("appointmentTime", AttributeValue.builder().s("2022-01-03T09:00").build());
+		startKey.put("appointmentDay", AttributeValue.builder().s("2022-01-03").build());
+		return startKey;
+	}
+}
@@ -2,8 +2,19 @@ package net.curmudgeon.suds.repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,10 +37,14 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import net.curmudgeon.suds.SudsApplication;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Pet;
+import net.curmudgeon.suds.util.CustomerKey;
+import net.curmudgeon.suds.util.ExpiringCache;
 import net.curmudgeon.suds.util.KeyUtils;
+import net.curmudgeon.suds.util.PetKey;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 
 /*
@@ -54,7 +69,10 @@ import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 @TestPropertySource(properties = { 
 		"amazon.dynamodb.endpoint=http://localhost:8000/", 
 		"amazon.aws.accesskey=accesskey1",
-		"amazon.aws.secretkey=secretkey1" })
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
 @TestInstance(Lifecycle.PER_CLASS)
 @TestMethodOrder(MethodOrderer.MethodName.class)
 public class CustomerRepositoryIntegrationTest {
@@ -65,8 +83,16 @@ public class CustomerRepositoryIntegrationTest {
 	@Autowired
 	private CustomerRepository customerRepository;
 
+	@Autowired
+	private DynamoDbClient dynamoDbClient;
+
+	@Autowired
+	private ParallelScanner parallelScanner;
+
 	private static final String PHONE1 = "(410) 123-1234";
 	private static final String PHONE2 = "(443) 999-8888";
+	private static final String PHONE3 = "(301) 555-1212";
+	private static final String PHONE4 = "(301) 555-3434";
 
 	@BeforeAll
 	public void setup() throws Exception {
@@ -249,5 +275,155 @@ public class CustomerRepositoryIntegrationTest {
 		assertEquals(petsForCustomer.size(), 2, "size of " + petsForCustomer.size() + " is not 2");
 		assertTrue(petsForCustomer.stream().anyMatch(item -> "Buddy".equals(item.getName())));
 		assertTrue(petsForCustomer.stream().anyMatch(item -> "Fluffernutter".equals(item.getName())));
+		
+		// Retrieve a customer and pets together.
+		Parent parentWithPets = customerRepository.getParentWithPets(PHONE1);
+		assertNotNull(parentWithPets);
+		assertEquals(parentWithPets.getLastName(), "Allbright", "last name " + parentWithPets.getLastName() + " is not Allbright");
+		assertNotNull(parentWithPets.getPets());
+		assertEquals(parentWithPets.getPets().size(), 2, "size of " + parentWithPets.getPets().size() + " is not 2");
+		assertTrue(parentWithPets.getPets().stream().anyMatch(item -> "Buddy".equals(item.getName()) && "Dog".equals(item.getType())));
+		assertTrue(parentWithPets.getPets().stream().anyMatch(item -> "Fluffernutter".equals(item.getName())));
+		
+		// Get all customers with pets grouped under them.
+		List<Parent> parentsWithPets = customerRepository.getAllParentsWithPets();
+		assertNotNull(parentsWithPets);
+		assertEquals(parentsWithPets.size(), 2, "size of " + parentsWithPets.size() + " is not 2");
+		assertTrue(parentsWithPets.stream().anyMatch(item -> "Allbright".equals(item.getLastName()) && item.getPets().size() == 2));
+		assertTrue(parentsWithPets.stream().anyMatch(item -> "Beckett".equals(item.getLastName()) && item.getPets().size() == 1));
+		
+		// Same customers streamed one at a time, in table order.
+		List<Parent> streamedParents = new ArrayList<Parent>();
+		customerRepository.streamAllParentsWithPets(streamedParents::add);
+		assertEquals(streamedParents.size(), 2, "size of " + streamedParents.size() + " is not 2");
+		assertTrue(streamedParents.stream().anyMatch(item -> "Allbright".equals(item.getLastName()) && item.getPets().size() == 2));
+		
+		// Page through pets two at a time, then customers one at a time.
+		List<Pet> pagedPets = new ArrayList<Pet>();
+		PagedResult<Pet> petPage = customerRepository.getPetsPage(2, null);
+		pagedPets.addAll(petPage.getItems());
+		while (petPage.hasMore()) {
+			petPage = customerRepository.getPetsPage(2, petPage.getLastEvaluatedKey());
+			pagedPets.addAll(petPage.getItems());
+		}
+		assertEquals(pagedPets.size(), 3, "size of " + pagedPets.size() + " is not 3");
+		
+		PagedResult<Parent> parentPage = customerRepository.getParentsWithPetsPage(1, null);
+		assertEquals(parentPage.getItems().size(), 1, "size of " + parentPage.getItems().size() + " is not 1");
+		assertTrue(parentPage.hasMore());
+		PagedResult<Parent> nextParentPage = customerRepository.getParentsWithPetsPage(1, parentPage.getLastEvaluatedKey());
+		assertEquals(nextParentPage.getItems().size(), 1, "size of " + nextParentPage.getItems().size() + " is not 1");
+		assertTrue(!parentPage.getItems().get(0).getCustomerId().equals(nextParentPage.getItems().get(0).getCustomerId()));
+	}
+
+	@Test
+	public void d_testBatchRetrieves() {
+		
+		// Parents by customer id, including a duplicate and a missing customer.
+		List<Parent> parents = customerRepository.getParentsByCustomerIds(Arrays.asList(
+				"CUSTOMER#"+StringUtils.getDigits(PHONE1),
+				"CUSTOMER#"+StringUtils.getDigits(PHONE2),
+				"CUSTOMER#"+StringUtils.getDigits(PHONE2),
+				"CUSTOMER#0000000000"));
+		assertNotNull(parents);
+		assertEquals(parents.size(), 2, "size of " + parents.size() + " is not 2");
+		
+		// Pets by key, including a missing pet.
+		List<Pet> petKeys = new ArrayList<Pet>();
+		for (String name: Arrays.asList("Buddy", "Sparky", "Nobody")) {
+			Pet petKey = new Pet();
+			petKey.setCustomerId("CUSTOMER#"+StringUtils.getDigits("Sparky".equals(name) ? PHONE2 : PHONE1));
+			petKey.setId("PET#"+KeyUtils.formatStringForKey(name));
+			petKeys.add(petKey);
+		}
+		List<Pet> pets = customerRepository.getPets(petKeys);
+		assertNotNull(pets);
+		assertEquals(pets.size(), 2, "size of " + pets.size() + " is not 2");
+		assertTrue(pets.stream().anyMatch(item -> "Buddy".equals(item.getName())));
+		assertTrue(pets.stream().anyMatch(item -> "Sparky".equals(item.getName())));
+		
+		// Parents with their pets by customer id, including a missing customer.
+		List<Parent> parentsWithPets = customerRepository.getParentsWithPets(Arrays.asList(
+				"CUSTOMER#"+StringUtils.getDigits(PHONE1),
+				"CUSTOMER#"+StringUtils.getDigits(PHONE2),
+				"CUSTOMER#0000000000"));
+		assertNotNull(parentsWithPets);
+		assertEquals(parentsWithPets.size(), 2, "size of " + parentsWithPets.size() + " is not 2");
+		assertTrue(parentsWithPets.stream().anyMatch(item -> PHONE2.equals(item.getPhoneNumber()) && item.getPets().size() == 1));
+	}
+
+	@Test
+	public void e_testSaveParentWithPets() {
+		Parent parent = new Parent();
+		parent.setFirstName("Cora");
+		parent.setLastName("Dunmore");
+		parent.setPhoneNumber(PHONE3);
+		
+		List<Pet> pets = new ArrayList<Pet>();
+		for (String name: Arrays.asList("Biscuit", "Gravy", "Biscuit")) {
+			Pet pet = new Pet();
+			pet.setName(name);
+			pet.setType("Dog");
+			pets.add(pet);
+		}
+		parent.setPets(pets);
+		
+		// Batched write, the repeated pet name collapses into one item.
+		customerRepository.saveParentWithPets(parent, false);
+		
+		Parent result = customerRepository.getParentWithPets(PHONE3);
+		assertNotNull(result);
+		assertEquals(result.getPets().size(), 2, "size of " + result.getPets().size() + " is not 2");
+		assertTrue(result.getPets().stream().allMatch(item -> PHONE3.equals(item.getPhoneNumber())));
+		
+		// Transactional write of an updated household.
+		Pet pet = new Pet();
+		pet.setName("Toast");
+		pet.setType("Cat");
+		parent.getPets().add(pet);
+		customerRepository.saveParentWithPets(parent, true);
+		
+		Parent result2 = customerRepository.getParentWithPets(PHONE3);
+		assertNotNull(result2);
+		assertEquals(result2.getPets().size(), 3, "size of " + result2.getPets().size() + " is not 3");
+		assertTrue(result2.getPets().stream().anyMatch(item -> "Toast".equals(item.getName()) && "Cat".equals(item.getType())));
+	}
+
+	@Test
+	public void f_testMissingLookupsAreRemembered() {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		CachingCustomerRepository caching = new CachingCustomerRepository(target,
+				new ExpiringCache<String,Parent>("parent", 10, Duration.ofMinutes(5)),
+				new ExpiringCache<PetKey,Pet>("pet", 10, Duration.ofMinutes(5)),
+				new ExpiringCache<String,Boolean>("customer-missing", 10, Duration.ofMinutes(5)));
+		String customerId = CustomerKey.fromPhoneNumber(PHONE4).getCustomerId();
+		
+		// An unknown customer is read once, then remembered, batch reads included.
+		assertNull(caching.getParentByPhoneNumber(PHONE4));
+		assertNull(caching.getParentByPhoneNumber(PHONE4));
+		assertTrue(caching.getParentsByCustomerIds(Arrays.asList(customerId)).isEmpty());
+		verify(target, times(1)).getParentByCustomerId(customerId);
+		verify(target, never()).getParentsByCustomerIds(anyCollection());
+		
+		// Same for an unknown pet.
+		assertNull(caching.getPetByPhoneNumberAndName(PHONE4, "Pepper"));
+		assertNull(caching.getPetByPhoneNumberAndName(PHONE4, "Pepper"));
+		verify(target, times(1)).getPetByCustomerIdAndPetId(eq(customerId), anyString());
+		
+		// Saving clears the markers, so the records are found straight away.
+		Parent parent = new Parent();
+		parent.setFirstName("Wren");
+		parent.setLastName("Halloway");
+		parent.setPhoneNumber(PHONE4);
+		caching.saveParent(parent);
+		
+		Pet pet = new Pet();
+		pet.setPhoneNumber(PHONE4);
+		pet.setName("Pepper");
+		pet.setType("Cat");
+		caching.savePet(pet);
+		
+		assertNotNull(caching.getParentByPhoneNumber(PHONE4), "saved parent still remembered as missing");
+		assertNotNull(caching.getPetByPhoneNumberAndName(PHONE4, "Pepper"), "saved pet still remembered as missing");
 	}
 }
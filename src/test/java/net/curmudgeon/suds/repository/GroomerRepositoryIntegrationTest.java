@@ -2,12 +2,25 @@ package net.curmudgeon.suds.repository;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.time.DayOfWeek;
+import java.time.Duration;
 import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeAll;
@@ -27,10 +40,19 @@ import org.springframework.test.context.web.WebAppConfiguration;
 import net.curmudgeon.suds.SudsApplication;
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.entity.WorkSchedule;
+import net.curmudgeon.suds.util.ExpiringCache;
+import net.curmudgeon.suds.util.GroomerKey;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
 
 /*
  * Copyright (C) 2022 Jay Rustine
@@ -54,7 +76,10 @@ import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 @TestPropertySource(properties = { 
 		"amazon.dynamodb.endpoint=http://localhost:8000/", 
 		"amazon.aws.accesskey=accesskey1",
-		"amazon.aws.secretkey=secretkey1" })
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
 @TestInstance(Lifecycle.PER_CLASS)
 @TestMethodOrder(MethodOrderer.MethodName.class)
 public class GroomerRepositoryIntegrationTest {
@@ -68,6 +93,9 @@ public class GroomerRepositoryIntegrationTest {
 	private static final String EMPLOYEE1 = "SUDS001";
 	private static final String EMPLOYEE2 = "SUDS002";
 	private static final String EMPLOYEE3 = "SUDS003";
+	private static final String EMPLOYEE4 = "SUDS004";
+	private static final String EMPLOYEE5 = "SUDS005";
+	private static final String EMPLOYEE6 = "SUDS006";
 
 	@BeforeAll
 	public void setup() throws Exception {
@@ -79,7 +107,12 @@ public class GroomerRepositoryIntegrationTest {
 		} catch (ResourceNotFoundException e) {
 			// Do nothing, table doesn't exist.
 		}
-		groomerTable.createTable();
+		groomerTable.createTable(CreateTableEnhancedRequest.builder()
+				.globalSecondaryIndices(EnhancedGlobalSecondaryIndex.builder()
+						.indexName(Groomer.CURRENT_INDEX)
+						.projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+						.build())
+				.build());
 	}
 	
 	@Test
@@ -187,4 +220,154 @@ public class GroomerRepositoryIntegrationTest {
 		assertTrue(groomers.stream().anyMatch(item -> "Covington".equals(item.getLastName())));
 		assertTrue(groomers.stream().anyMatch(item -> "4438889999".equals(StringUtils.getDigits(item.getHomePhoneNumber()))));
 	}
+
+	@Test
+	public void c_testBatchRetrieve() throws Exception {
+		List<Groomer> groomers = groomerRepository.getGroomers(Arrays.asList(
+				"GROOMER#" + EMPLOYEE1, "GROOMER#" + EMPLOYEE3, "GROOMER#" + EMPLOYEE3, "GROOMER#NOBODY"));
+		assertNotNull(groomers);
+		assertEquals(groomers.size(), 2, "size of " + groomers.size() + " is not 2");
+		assertTrue(groomers.stream().anyMatch(item -> EMPLOYEE1.equals(item.getEmployeeNumber())));
+		assertTrue(groomers.stream().anyMatch(item -> EMPLOYEE3.equals(item.getEmployeeNumber())));
+		assertTrue(groomers.stream().allMatch(item -> "v0".equals(item.getVersion())));
+	}
+
+	@Test
+	public void d_testStaleSaveRetriesInsteadOfOverwriting() throws Exception {
+		GroomerRepositoryImpl target = spy(new GroomerRepositoryImpl(dynamoDbEnhancedClient));
+		String groomerId = GroomerKey.fromEmployeeNumber(EMPLOYEE4).getGroomerId();
+		
+		Groomer groomer = new Groomer();
+		groomer.setEmployeeNumber(EMPLOYEE4);
+		groomer.setFirstName("Hal");
+		groomer.setLastName("Moreno");
+		groomer.setHomePhoneNumber("(410) 777-1111");
+		target.saveGroomer(groomer);
+		
+		groomer.setHomePhoneNumber("(410) 777-2222");
+		target.saveGroomer(groomer);
+		
+		// The next save first reads v0 as it was before the second save, as if the
+		// second save had landed between its read and its write.
+		Groomer stale = target.getGroomer(groomerId);
+		stale.setLatestVersion(1);
+		doReturn(stale).doCallRealMethod().when(target).readCurrent(groomerId);
+		clearInvocations(target);
+		
+		groomer.setHomePhoneNumber("(410) 777-3333");
+		target.saveGroomer(groomer);
+		verify(target, times(2)).readCurrent(groomerId);
+		
+		Groomer result = target.getGroomer(groomerId);
+		assertEquals(result.getLatestVersion(), 3, "latest version of " + result.getLatestVersion() + " is not 3");
+		assertEquals(result.getHomePhoneNumber(), "(410) 777-3333", "phone " + result.getHomePhoneNumber() + " is not (410) 777-3333");
+		
+		// Version 2 is still the second save, not overwritten by the stale attempt.
+		DynamoDbTable<Groomer> groomerTable = dynamoDbEnhancedClient.table("Groomer", TableSchema.fromBean(Groomer.class));
+		Groomer version2 = groomerTable.getItem(Key.builder().partitionValue(groomerId).sortValue(GroomerKey.version(2)).build());
+		assertNotNull(version2);
+		assertEquals(version2.getHomePhoneNumber(), "(410) 777-2222", "phone " + version2.getHomePhoneNumber() + " is not (410) 777-2222");
+	}
+
+	@Test
+	public void e_testSaveGivesUpWhenAlwaysStale() throws Exception {
+		GroomerRepositoryImpl target = spy(new GroomerRepositoryImpl(dynamoDbEnhancedClient));
+		String groomerId = GroomerKey.fromEmployeeNumber(EMPLOYEE4).getGroomerId();
+		
+		Groomer stale = target.getGroomer(groomerId);
+		stale.setLatestVersion(1);
+		doReturn(stale).when(target).readCurrent(groomerId);
+		
+		Groomer groomer = new Groomer();
+		groomer.setEmployeeNumber(EMPLOYEE4);
+		groomer.setFirstName("Hal");
+		groomer.setLastName("Moreno");
+		groomer.setHomePhoneNumber("(410) 777-4444");
+		assertThrows(TransactionCanceledException.class, () -> target.saveGroomer(groomer));
+		
+		Groomer result = groomerRepository.getGroomerByEmployeeNumber(EMPLOYEE4);
+		assertEquals(result.getLatestVersion(), 3, "latest version of " + result.getLatestVersion() + " is not 3");
+		assertEquals(result.getHomePhoneNumber(), "(410) 777-3333", "phone " + result.getHomePhoneNumber() + " is not (410) 777-3333");
+	}
+
+	@Test
+	public void f_testGroomersPage() throws Exception {
+		
+		// Walk the current groomers two at a time, each should come back exactly once.
+		List<String> paged = new ArrayList<String>();
+		Map<String,AttributeValue> startKey = null;
+		int pages = 0;
+		do {
+			PagedResult<Groomer> page = groomerRepository.getGroomersPage(2, startKey);
+			assertTrue(page.getItems().size() <= 2, "page size of " + page.getItems().size() + " is over 2");
+			page.getItems().forEach(groomer -> paged.add(groomer.getEmployeeNumber()));
+			startKey = page.getLastEvaluatedKey();
+			pages++;
+		} while (startKey != null && pages < 10);
+		
+		assertEquals(paged.size(), 4, "paged size of " + paged.size() + " is not 4");
+		assertEquals(new HashSet<String>(paged), new HashSet<String>(Arrays.asList(EMPLOYEE1, EMPLOYEE2, EMPLOYEE3, EMPLOYEE4)), "paged groomers " + paged + " are not the current groomers");
+		
+		PagedResult<Groomer> all = groomerRepository.getGroomersPage(10, null);
+		assertEquals(all.getItems().size(), 4, "size of " + all.getItems().size() + " is not 4");
+		assertTrue(!all.hasMore(), "a page holding every groomer still has more");
+	}
+
+	@Test
+	public void g_testBackfillCurrentIndex() throws Exception {
+		GroomerRepositoryImpl target = new GroomerRepositoryImpl(dynamoDbEnhancedClient);
+		
+		// A v0 record from before the index, written without the index key.
+		Groomer legacy = new Groomer();
+		legacy.setGroomerId(GroomerKey.fromEmployeeNumber(EMPLOYEE5).getGroomerId());
+		legacy.setVersion(GroomerKey.CURRENT_VERSION);
+		legacy.setLatestVersion(1);
+		legacy.setEmployeeNumber(EMPLOYEE5);
+		legacy.setFirstName("Olive");
+		legacy.setLastName("Pembrook");
+		legacy.setHomePhoneNumber("(410) 777-5555");
+		DynamoDbTable<Groomer> groomerTable = dynamoDbEnhancedClient.table("Groomer", TableSchema.fromBean(Groomer.class));
+		groomerTable.putItem(legacy);
+		assertTrue(target.getAllGroomers().stream().noneMatch(item -> EMPLOYEE5.equals(item.getEmployeeNumber())), "legacy groomer is already in the index");
+		
+		assertEquals(target.backfillCurrentIndex(), 1, "backfill did not update exactly the legacy groomer");
+		
+		List<Groomer> groomers = target.getAllGroomers();
+		assertEquals(groomers.size(), 5, "size of " + groomers.size() + " is not 5");
+		Groomer result = groomers.stream().filter(item -> EMPLOYEE5.equals(item.getEmployeeNumber())).findFirst().orElse(null);
+		assertNotNull(result);
+		assertEquals(result.getLastName(), "Pembrook", "last name " + result.getLastName() + " is not Pembrook");
+		assertEquals(result.getLatestVersion(), 1, "latest version of " + result.getLatestVersion() + " is not 1");
+		
+		// Nothing left to do the second time.
+		assertEquals(target.backfillCurrentIndex(), 0, "second backfill updated records");
+	}
+
+	@Test
+	public void h_testMissingLookupsAreRemembered() throws Exception {
+		GroomerRepository target = spy(new GroomerRepositoryImpl(dynamoDbEnhancedClient));
+		CachingGroomerRepository caching = new CachingGroomerRepository(target,
+				new ExpiringCache<String,Groomer>("groomer", 10, Duration.ofMinutes(5)),
+				new ExpiringCache<String,Boolean>("groomer-missing", 10, Duration.ofMinutes(5)));
+		String groomerId = GroomerKey.fromEmployeeNumber(EMPLOYEE6).getGroomerId();
+		
+		// An unknown groomer is read once, then remembered, batch reads included.
+		assertNull(caching.getGroomerByEmployeeNumber(EMPLOYEE6));
+		assertNull(caching.getGroomerByEmployeeNumber(EMPLOYEE6));
+		assertTrue(caching.getGroomers(Arrays.asList(groomerId)).isEmpty());
+		verify(target, times(1)).getGroomer(groomerId);
+		verify(target, never()).getGroomers(anyCollection());
+		
+		// Saving clears the marker.
+		Groomer groomer = new Groomer();
+		groomer.setEmployeeNumber(EMPLOYEE6);
+		groomer.setFirstName("Quinn");
+		groomer.setLastName("Ashby");
+		groomer.setHomePhoneNumber("(410) 777-6666");
+		caching.saveGroomer(groomer);
+		
+		Groomer result = caching.getGroomerByEmployeeNumber(EMPLOYEE6);
+		assertNotNull(result, "saved groomer still remembered as missing");
+		assertEquals(result.getLatestVersion(), 1, "latest version of " + result.getLatestVersion() + " is not 1");
+	}
 }
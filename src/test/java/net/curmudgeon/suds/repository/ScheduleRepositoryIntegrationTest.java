@@ -4,9 +4,15 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.net.URI;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
@@ -15,6 +21,7 @@ import org.junit.jupiter.api.TestInstance.Lifecycle;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
@@ -25,9 +32,21 @@ import net.curmudgeon.suds.SudsApplication;
 import net.curmudgeon.suds.entity.Groomer;
 import net.curmudgeon.suds.entity.Parent;
 import net.curmudgeon.suds.entity.Schedule;
+import net.curmudgeon.suds.util.ScheduleKey;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
 import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 
 /*
@@ -52,7 +71,10 @@ import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
 @TestPropertySource(properties = { 
 		"amazon.dynamodb.endpoint=http://localhost:8000/", 
 		"amazon.aws.accesskey=accesskey1",
-		"amazon.aws.secretkey=secretkey1" })
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
 @TestInstance(Lifecycle.PER_CLASS)
 @TestMethodOrder(MethodOrderer.MethodName.class)
 public class ScheduleRepositoryIntegrationTest {
@@ -60,8 +82,21 @@ public class ScheduleRepositoryIntegrationTest {
 	@Autowired
 	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
 
+	@Autowired
+	private DynamoDbClient dynamoDbClient;
+
 	@Autowired
 	private ScheduleRepository scheduleRepository;
+
+	@Autowired
+	private AwsBasicCredentials amazonAWSCredentials;
+
+	@Value("${amazon.dynamodb.endpoint}")
+	private String amazonDynamoDBEndpoint;
+
+	// Not a bean, nothing in the application reads asynchronously, so the test builds its own.
+	private DynamoDbAsyncClient dynamoDbAsyncClient;
+	private ScheduleAsyncRepository scheduleAsyncRepository;
 	
 	private static final String GROOMERID1 = "GROOMER#SUDS001";
 	private static final String GROOMERID2 = "GROOMER#SUDS002";
@@ -83,7 +118,33 @@ public class ScheduleRepositoryIntegrationTest {
 		} catch (ResourceNotFoundException e) {
 			// Do nothing, table doesn't exist.
 		}
-		scheduleTable.createTable();
+		scheduleTable.createTable(CreateTableEnhancedRequest.builder()
+				.globalSecondaryIndices(
+						allIndex(Schedule.DAY_INDEX),
+						allIndex(Schedule.GROOMER_INDEX),
+						allIndex(Schedule.CUSTOMER_INDEX))
+				.build());
+		
+		dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+				.endpointOverride(URI.create(amazonDynamoDBEndpoint))
+				.region(Region.US_EAST_1)
+				.credentialsProvider(StaticCredentialsProvider.create(amazonAWSCredentials))
+				.build();
+		scheduleAsyncRepository = new ScheduleAsyncRepositoryImpl(
+				DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(dynamoDbAsyncClient).build());
+	}
+	
+	@AfterAll
+	public void teardown() {
+		dynamoDbAsyncClient.close();
+	}
+	
+	// Global secondary index projecting all attributes.
+	private EnhancedGlobalSecondaryIndex allIndex(String indexName) {
+		return EnhancedGlobalSecondaryIndex.builder()
+				.indexName(indexName)
+				.projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+				.build();
 	}
 	
 	@Test
@@ -157,4 +218,125 @@ public class ScheduleRepositoryIntegrationTest {
 		assertTrue(results3.stream().anyMatch(item -> LocalDateTime.parse("2022-01-03T10:00:00").equals(item.getAppointmentTime())));
 		assertTrue(results3.stream().anyMatch(item -> LocalDateTime.parse("2022-01-10T09:00:00").equals(item.getAppointmentTime())));
 	}
+
+	@Test
+	public void b_testAsyncRetrievesBasedOnPreviousTests() throws Exception {
+		List<Schedule> results = scheduleAsyncRepository.getSchedule(
+				LocalDateTime.parse("2022-01-03T00:00:00"), 
+				LocalDateTime.parse("2022-01-08T23:59:59")).get();
+		
+		assertNotNull(results);
+		assertEquals(results.size(), 3, "size of " + results.size() + " is not 3");
+		assertEquals(results.get(0).getAppointmentTime(), LocalDateTime.parse("2022-01-03T09:00:00"), "results are not sorted");
+		
+		Groomer mockGroomer = new Groomer();
+		mockGroomer.setGroomerId(GROOMERID2);
+		List<Schedule> results2 = scheduleAsyncRepository.getScheduleForGroomer(
+				mockGroomer,
+				LocalDateTime.parse("2022-01-01T00:00:00"), 
+				LocalDateTime.parse("2022-01-31T23:59:59")).get();
+		
+		assertNotNull(results2);
+		assertEquals(results2.size(), 2, "size of " + results2.size() + " is not 2");
+		assertTrue(results2.stream().anyMatch(item -> LocalDateTime.parse("2022-01-03T10:00:00").equals(item.getAppointmentTime())));
+		assertTrue(results2.stream().anyMatch(item -> LocalDateTime.parse("2022-01-10T09:00:00").equals(item.getAppointmentTime())));
+	}
+
+	@Test
+	public void c_testBatchSave() throws Exception {
+		Schedule schedule = new Schedule();
+		schedule.setAppointmentTime(LocalDateTime.parse("2022-02-07T09:00:00"));
+		schedule.setGroomerId(GROOMERID1);
+		schedule.setCustomerId(CUSTOMERID2);
+		schedule.setPetId(PETID3);
+		
+		Schedule schedule2 = new Schedule();
+		schedule2.setAppointmentTime(LocalDateTime.parse("2022-02-08T11:00:00"));
+		schedule2.setGroomerId(GROOMERID2);
+		schedule2.setCustomerId(CUSTOMERID1);
+		schedule2.setPetId(PETID2);
+		
+		scheduleRepository.saveSchedules(Arrays.asList(schedule, schedule2));
+		
+		List<Schedule> results = scheduleRepository.getSchedule(
+				LocalDateTime.parse("2022-02-01T00:00:00"), 
+				LocalDateTime.parse("2022-02-28T23:59:59"));
+		
+		assertNotNull(results);
+		assertEquals(results.size(), 2, "size of " + results.size() + " is not 2");
+		assertEquals(results.get(0).getPetId(), PETID3, "results are not sorted");
+		assertEquals(results.get(1).getAppointmentDay(), "2022-02-08", "appointment day not set");
+	}
+
+	@Test
+	public void d_testSchedulePageCrossesDays() throws Exception {
+		LocalDateTime start = LocalDateTime.parse("2022-01-03T00:00:00");
+		LocalDateTime end = LocalDateTime.parse("2022-01-10T23:59:59");
+		List<LocalDateTime> expected = Arrays.asList(
+				LocalDateTime.parse("2022-01-03T09:00:00"),
+				LocalDateTime.parse("2022-01-03T10:00:00"),
+				LocalDateTime.parse("2022-01-04T13:00:00"),
+				LocalDateTime.parse("2022-01-10T09:00:00"));
+		
+		// Page sizes that end mid day, on a day boundary, and span several days.
+		for (int limit = 1; limit <= 5; limit++) {
+			List<LocalDateTime> paged = new ArrayList<LocalDateTime>();
+			Map<String,AttributeValue> startKey = null;
+			int pages = 0;
+			do {
+				PagedResult<Schedule> page = scheduleRepository.getSchedulePage(start, end, limit, startKey);
+				assertTrue(page.getItems().size() <= limit, "page size of " + page.getItems().size() + " is over " + limit);
+				page.getItems().forEach(schedule -> paged.add(schedule.getAppointmentTime()));
+				startKey = page.getLastEvaluatedKey();
+				pages++;
+			} while (startKey != null && pages < 10);
+			
+			assertEquals(paged, expected, "pages of " + limit + " returned " + paged);
+		}
+	}
+
+	@Test
+	public void e_testSchedulePageFromDayOnlyKey() throws Exception {
+		
+		// A key naming only the day starts at the beginning of that day.
+		Map<String,AttributeValue> startKey = Collections.singletonMap("appointmentDay", AttributeValue.builder().s("2022-01-04").build());
+		PagedResult<Schedule> page = scheduleRepository.getSchedulePage(
+				LocalDateTime.parse("2022-01-03T00:00:00"), 
+				LocalDateTime.parse("2022-01-10T23:59:59"), 10, startKey);
+		
+		assertEquals(page.getItems().size(), 2, "size of " + page.getItems().size() + " is not 2");
+		assertEquals(page.getItems().get(0).getAppointmentTime(), LocalDateTime.parse("2022-01-04T13:00:00"), "page did not start on the keyed day");
+		assertEquals(page.getItems().get(1).getAppointmentTime(), LocalDateTime.parse("2022-01-10T09:00:00"), "page skipped a later day");
+		assertTrue(!page.hasMore(), "last page still has more");
+	}
+
+	@Test
+	public void f_testBackfillAppointmentDay() throws Exception {
+		ScheduleRepositoryImpl target = new ScheduleRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient);
+		LocalDateTime appointmentTime = LocalDateTime.parse("2022-03-07T09:00:00");
+		
+		// An entry from before the day index, written without the day.
+		Schedule legacy = new Schedule();
+		legacy.setScheduleId(ScheduleKey.of(appointmentTime).getScheduleId());
+		legacy.setAppointmentTime(appointmentTime);
+		legacy.setGroomerId(GROOMERID1);
+		legacy.setCustomerId(CUSTOMERID2);
+		legacy.setPetId(PETID3);
+		DynamoDbTable<Schedule> scheduleTable = dynamoDbEnhancedClient.table("Schedule", TableSchema.fromBean(Schedule.class));
+		scheduleTable.putItem(legacy);
+		
+		LocalDateTime start = LocalDateTime.parse("2022-03-07T00:00:00");
+		LocalDateTime end = LocalDateTime.parse("2022-03-07T23:59:59");
+		assertTrue(target.getSchedule(start, end).isEmpty(), "legacy entry is already in the day index");
+		
+		assertEquals(target.backfillAppointmentDay(), 1, "backfill did not update exactly the legacy entry");
+		
+		List<Schedule> results = target.getSchedule(start, end);
+		assertEquals(results.size(), 1, "size of " + results.size() + " is not 1");
+		assertEquals(results.get(0).getAppointmentDay(), "2022-03-07", "appointment day not set");
+		assertEquals(results.get(0).getPetId(), PETID3, "backfill changed the entry");
+		
+		// Nothing left to do the second time.
+		assertEquals(target.backfillAppointmentDay(), 0, "second backfill updated entries");
+	}
 }
@@ -0,0 +1,286 @@
+package net.curmudgeon.suds.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+
+import net.curmudgeon.suds.SudsApplication;
+import net.curmudgeon.suds.entity.Parent;
+import net.curmudgeon.suds.entity.Pet;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Write-behind buffers built directly around a spied DynamoDB repository, with a
+ * window long enough that only the explicit flushes write anything.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(classes = SudsApplication.class)
+@WebAppConfiguration
+@ActiveProfiles("local")
+@TestPropertySource(properties = { 
+		"amazon.dynamodb.endpoint=http://localhost:8000/", 
+		"amazon.aws.accesskey=accesskey1",
+		"amazon.aws.secretkey=secretkey1",
+		"suds.cursor.secret=test-secret",
+		"suds.warm-up.enabled=false",
+		"suds.groomer.backfill.enabled=false" })
+@TestInstance(Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.MethodName.class)
+public class WriteBehindCustomerRepositoryIntegrationTest {
+
+	@Autowired
+	private DynamoDbEnhancedClient dynamoDbEnhancedClient;
+
+	@Autowired
+	private DynamoDbClient dynamoDbClient;
+
+	@Autowired
+	private ParallelScanner parallelScanner;
+
+	private static final long WINDOW_MILLIS = 600000;
+	private static final int MAX_ATTEMPTS = 3;
+
+	private static final String PHONE1 = "(202) 555-0101";
+	private static final String PHONE2 = "(202) 555-0102";
+	private static final String PHONE3 = "(202) 555-0103";
+	private static final String PHONE4 = "(202) 555-0104";
+	private static final String PHONE5 = "(202) 555-0105";
+	private static final String PHONE6 = "(202) 555-0106";
+	private static final String PHONE7 = "(202) 555-0107";
+
+	private List<ScheduledExecutorService> executors = new ArrayList<>();
+
+	@BeforeAll
+	public void setup() throws Exception {
+		
+		// Create new, empty table.
+		DynamoDbTable<Parent> parentTable = dynamoDbEnhancedClient.table("Customer", TableSchema.fromBean(Parent.class));		
+		try {
+			parentTable.deleteTable();
+		} catch (ResourceNotFoundException e) {
+			// Do nothing, table doesn't exist.
+		}
+		parentTable.createTable();
+	}
+
+	@AfterAll
+	public void teardown() {
+		executors.forEach(ScheduledExecutorService::shutdownNow);
+	}
+
+	@Test
+	public void a_testCoalescesAndReadsBufferedSaves() throws Exception {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		WriteBehindCustomerRepository writeBehind = writeBehind(target, 100);
+
+		Parent parent = parent("Casey", "Nguyen", PHONE1, "Annapolis");
+		writeBehind.saveParent(parent);
+
+		Parent updated = parent("Casey", "Nguyen", PHONE1, "Columbia");
+		updated.setPets(Arrays.asList(pet("Biscuit")));
+		writeBehind.saveParentWithPets(updated, false);
+
+		// Two saves of the same parent collapse into one buffered record.
+		assertEquals(writeBehind.getPending(), 2, "pending of " + writeBehind.getPending() + " is not 2");
+		assertNull(target.getParentByPhoneNumber(PHONE1), "parent written before the flush");
+
+		// Reads see the latest buffered version.
+		Parent buffered = writeBehind.getParentByPhoneNumber(PHONE1);
+		assertNotNull(buffered);
+		assertEquals(buffered.getAddress().get("city"), "Columbia", "city " + buffered.getAddress().get("city") + " is not Columbia");
+
+		Parent withPets = writeBehind.getParentWithPets(PHONE1);
+		assertNotNull(withPets);
+		assertNotSame(withPets, updated, "overlay returned the buffered instance");
+		assertEquals(withPets.getPets().size(), 1, "size of " + withPets.getPets().size() + " is not 1");
+		assertNotNull(writeBehind.getPetByPhoneNumberAndName(PHONE1, "Biscuit"));
+
+		// One flush, one write, and the stored records match.
+		assertTrue(writeBehind.flush());
+		verify(target, times(1)).saveParentsAndPets(anyList(), anyList());
+		assertEquals(writeBehind.getPending(), 0, "pending of " + writeBehind.getPending() + " is not 0");
+
+		Parent stored = target.getParentWithPets(PHONE1);
+		assertNotNull(stored);
+		assertEquals(stored.getAddress().get("city"), "Columbia", "city " + stored.getAddress().get("city") + " is not Columbia");
+		assertEquals(stored.getPets().size(), 1, "size of " + stored.getPets().size() + " is not 1");
+	}
+
+	@Test
+	public void b_testFailedChunkIsSetAside() throws Exception {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		doThrow(new IllegalStateException("rejected")).when(target).saveParentsAndPets(
+				argThat(parents -> parents.stream().anyMatch(parent -> "Nowhere".equals(parent.getAddress().get("city")))), anyList());
+		WriteBehindCustomerRepository writeBehind = writeBehind(target, 100);
+
+		writeBehind.saveParent(parent("Broken", "Record", PHONE2, "Nowhere"));
+		writeBehind.saveParent(parent("Dana", "Okafor", PHONE3, "Bowie"));
+
+		// Both records share the failing chunk, so both are set aside.
+		assertFalse(writeBehind.flush());
+		assertEquals(writeBehind.getSetAside(), 2, "set aside of " + writeBehind.getSetAside() + " is not 2");
+		assertNotNull(writeBehind.getParentByPhoneNumber(PHONE3), "set aside record no longer readable");
+
+		// Retried one at a time, the good record gets through and only the bad one is left.
+		assertFalse(writeBehind.flush());
+		assertEquals(writeBehind.getSetAside(), 1, "set aside of " + writeBehind.getSetAside() + " is not 1");
+		assertNotNull(target.getParentByPhoneNumber(PHONE3), "good record not written");
+		assertNull(target.getParentByPhoneNumber(PHONE2), "bad record written");
+
+		// Saving the record again replaces the set aside version.
+		writeBehind.saveParent(parent("Broken", "Record", PHONE2, "Laurel"));
+		assertTrue(writeBehind.flush());
+		assertEquals(writeBehind.getSetAside(), 0, "set aside of " + writeBehind.getSetAside() + " is not 0");
+		assertNotNull(target.getParentByPhoneNumber(PHONE2), "fixed record not written");
+	}
+
+	@Test
+	public void c_testFullBufferRefusesSaves() throws Exception {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		doThrow(new IllegalStateException("table unavailable")).when(target).saveParentsAndPets(anyList(), anyList());
+		WriteBehindCustomerRepository writeBehind = writeBehind(target, 2);
+
+		// The second save fills the buffer and its flush fails.
+		writeBehind.saveParent(parent("Eli", "Park", PHONE4, "Greenbelt"));
+		writeBehind.saveParent(parent("Fran", "Silva", PHONE5, "Greenbelt"));
+		assertEquals(writeBehind.getSetAside(), 2, "set aside of " + writeBehind.getSetAside() + " is not 2");
+
+		// Nothing more is taken until the buffer can be written out.
+		assertThrows(IllegalStateException.class, () -> writeBehind.saveParent(parent("Gus", "Park", PHONE4, "Greenbelt")));
+		assertEquals(writeBehind.getPending() + writeBehind.getSetAside(), 2, "buffer grew past max pending");
+	}
+
+	@Test
+	public void d_testBulkSavesWriteThrough() throws Exception {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		WriteBehindCustomerRepository writeBehind = writeBehind(target, 100);
+
+		// An older version sits in the buffer when the bulk save comes in.
+		writeBehind.saveParent(parent("Hana", "Reyes", PHONE6, "Odenton"));
+		assertEquals(writeBehind.getPending(), 1, "pending of " + writeBehind.getPending() + " is not 1");
+
+		Pet pet = pet("Maple");
+		pet.setPhoneNumber(PHONE6);
+		writeBehind.saveParentsAndPets(Arrays.asList(parent("Hana", "Reyes", PHONE6, "Severn")), Arrays.asList(pet));
+
+		// Written right away, and the older version won't be flushed over it.
+		assertEquals(writeBehind.getPending(), 0, "pending of " + writeBehind.getPending() + " is not 0");
+		Parent stored = target.getParentWithPets(PHONE6);
+		assertNotNull(stored);
+		assertEquals(stored.getAddress().get("city"), "Severn", "city " + stored.getAddress().get("city") + " is not Severn");
+		assertEquals(stored.getPets().size(), 1, "size of " + stored.getPets().size() + " is not 1");
+
+		assertTrue(writeBehind.flush());
+		assertEquals(target.getParentByPhoneNumber(PHONE6).getAddress().get("city"), "Severn", "flush overwrote the bulk save");
+
+		// Failures reach the caller instead of being buffered.
+		doThrow(new IllegalStateException("rejected")).when(target).saveParentsAndPets(anyList(), anyList());
+		assertThrows(IllegalStateException.class, () -> writeBehind.saveParentsAndPets(
+				Arrays.asList(parent("Ivy", "Reyes", PHONE6, "Severn")), Collections.emptyList()));
+		assertEquals(writeBehind.getPending() + writeBehind.getSetAside(), 0, "failed bulk save was buffered");
+	}
+
+	@Test
+	public void e_testSetAsideRecordIsDroppedAfterMaxAttempts() throws Exception {
+		CustomerRepository target = spy(new CustomerRepositoryImpl(dynamoDbEnhancedClient, dynamoDbClient, parallelScanner));
+		doThrow(new IllegalStateException("rejected")).when(target).saveParentsAndPets(
+				argThat(parents -> parents.stream().anyMatch(parent -> "Nowhere".equals(parent.getAddress().get("city")))), anyList());
+		WriteBehindCustomerRepository writeBehind = writeBehind(target, 100);
+
+		writeBehind.saveParent(parent("Jules", "Mensah", PHONE7, "Nowhere"));
+
+		// Set aside after each failure short of the limit.
+		for (int attempt = 1; attempt < MAX_ATTEMPTS; attempt++) {
+			assertFalse(writeBehind.flush());
+			assertEquals(writeBehind.getSetAside(), 1, "set aside of " + writeBehind.getSetAside() + " is not 1 after attempt " + attempt);
+		}
+
+		// The last failure drops it, and later flushes have nothing left to retry.
+		assertFalse(writeBehind.flush());
+		assertEquals(writeBehind.getSetAside(), 0, "set aside of " + writeBehind.getSetAside() + " is not 0");
+		assertEquals(writeBehind.getDropped(), 1L, "dropped of " + writeBehind.getDropped() + " is not 1");
+		assertTrue(writeBehind.flush());
+		verify(target, times(MAX_ATTEMPTS)).saveParentsAndPets(anyList(), anyList());
+		assertNull(writeBehind.getParentByPhoneNumber(PHONE7), "dropped record still readable");
+	}
+
+	private WriteBehindCustomerRepository writeBehind(CustomerRepository target, int maxPending) {
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		executors.add(executor);
+		return new WriteBehindCustomerRepository(target, executor, WINDOW_MILLIS, maxPending, MAX_ATTEMPTS);
+	}
+
+	private Parent parent(String firstName, String lastName, String phoneNumber, String city) {
+		Map<String,String> address = new HashMap<String,String>();
+		address.put("street", "1 Test Street");
+		address.put("city", city);
+		address.put("state", "MD");
+		address.put("zipCode", "21000");
+
+		Parent parent = new Parent();
+		parent.setFirstName(firstName);
+		parent.setLastName(lastName);
+		parent.setPhoneNumber(phoneNumber);
+		parent.setAddress(address);
+		return parent;
+	}
+
+	private Pet pet(String name) {
+		Pet pet = new Pet();
+		pet.setName(name);
+		pet.setType("Dog");
+		return pet;
+	}
+}
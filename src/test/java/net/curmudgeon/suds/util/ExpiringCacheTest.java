@@ -0,0 +1,137 @@
+package net.curmudgeon.suds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Expiry, eviction, statistics, stale puts and copies, on a clock the test moves by hand.
+ */
+public class ExpiringCacheTest {
+
+	private AtomicLong now = new AtomicLong(1000);
+
+	@Test
+	public void a_testEntriesExpireAfterTtl() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 10, Duration.ofSeconds(30), now::get);
+		cache.put("a", "apple");
+		
+		now.addAndGet(Duration.ofSeconds(29).toNanos());
+		assertEquals(cache.get("a"), "apple", "entry expired early");
+		
+		now.addAndGet(Duration.ofSeconds(1).toNanos());
+		assertNull(cache.get("a"), "entry outlived its ttl");
+		assertEquals(cache.size(), 0, "size of " + cache.size() + " is not 0");
+		assertEquals(cache.getEvictions(), 1, "evictions of " + cache.getEvictions() + " is not 1");
+		
+		// Replacing an entry starts its ttl again.
+		cache.put("b", "banana");
+		now.addAndGet(Duration.ofSeconds(20).toNanos());
+		cache.put("b", "blueberry");
+		now.addAndGet(Duration.ofSeconds(20).toNanos());
+		assertEquals(cache.get("b"), "blueberry", "replaced entry kept the old expiry");
+	}
+
+	@Test
+	public void b_testNoTtlNeverExpires() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 10, null, now::get);
+		cache.put("a", "apple");
+		now.addAndGet(Duration.ofDays(365).toNanos());
+		assertEquals(cache.get("a"), "apple", "entry without a ttl expired");
+	}
+
+	@Test
+	public void c_testLeastRecentlyUsedIsEvicted() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 3, Duration.ofMinutes(5), now::get);
+		cache.put("a", "apple");
+		cache.put("b", "banana");
+		cache.put("c", "cherry");
+		
+		// Reading a makes b the least recently used.
+		cache.get("a");
+		cache.put("d", "date");
+		
+		assertEquals(cache.size(), 3, "size of " + cache.size() + " is not 3");
+		assertEquals(cache.getEvictions(), 1, "evictions of " + cache.getEvictions() + " is not 1");
+		assertNull(cache.get("b"), "least recently used entry was kept");
+		assertEquals(cache.get("a"), "apple", "recently read entry was evicted");
+		assertEquals(cache.get("c"), "cherry", "entry was evicted out of order");
+		assertEquals(cache.get("d"), "date", "newest entry missing");
+	}
+
+	@Test
+	public void d_testCounters() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 10, Duration.ofMinutes(5), now::get);
+		cache.get("a");
+		cache.put("a", "apple");
+		cache.get("a");
+		cache.get("a");
+		cache.put("b", null);
+		cache.get("b");
+		cache.invalidate("a");
+		cache.get("a");
+		
+		assertEquals(cache.getHits(), 2, "hits of " + cache.getHits() + " is not 2");
+		assertEquals(cache.getMisses(), 3, "misses of " + cache.getMisses() + " is not 3");
+		assertEquals(cache.getEvictions(), 0, "invalidating counted as an eviction");
+		assertEquals(cache.toString(), "test [size=0, hits=2, misses=3, evictions=0]", "unexpected " + cache);
+	}
+
+	@Test
+	public void e_testZeroSizeDisables() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 0, Duration.ofMinutes(5), now::get);
+		assertFalse(cache.isEnabled());
+		cache.put("a", "apple");
+		assertNull(cache.get("a"), "disabled cache kept an entry");
+		assertEquals(cache.size(), 0, "size of " + cache.size() + " is not 0");
+	}
+
+	@Test
+	public void f_testPutAfterInvalidateIsDropped() throws Exception {
+		ExpiringCache<String,String> cache = new ExpiringCache<String,String>("test", 10, Duration.ofMinutes(5), now::get);
+		
+		// A lookup starts, a save invalidates, then the lookup's stale result arrives.
+		long generation = cache.getGeneration();
+		cache.invalidate("a");
+		cache.put("a", "apple", generation);
+		assertNull(cache.get("a"), "stale read-through was cached");
+		
+		// A lookup that started after the invalidate is cached.
+		cache.put("a", "apricot", cache.getGeneration());
+		assertEquals(cache.get("a"), "apricot", "fresh read-through was dropped");
+	}
+
+	@Test
+	public void g_testValuesAreCopied() throws Exception {
+		ExpiringCache<String,StringBuilder> cache = new ExpiringCache<String,StringBuilder>("test", 10, Duration.ofMinutes(5),
+				value -> new StringBuilder(value), now::get);
+		StringBuilder value = new StringBuilder("apple");
+		cache.put("a", value);
+		
+		// Changing what was put, or what came back, leaves the cached value alone.
+		value.append(" pie");
+		cache.get("a").append(" tart");
+		assertEquals(cache.get("a").toString(), "apple", "cached value was shared");
+		assertNotSame(cache.get("a"), cache.get("a"), "same object returned twice");
+	}
+}
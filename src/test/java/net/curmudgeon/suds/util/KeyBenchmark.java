@@ -0,0 +1,72 @@
+package net.curmudgeon.suds.util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * Compares building pet keys the old way (regex scrub and string concatenation)
+ * with the typed keys. Not run by the build, start it from the IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=net.curmudgeon.suds.util.KeyBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyBenchmark {
+
+	private String phoneNumber = "(410) 123-1234";
+	private String petName = "Fluffer Nutter";
+
+	@Benchmark
+	public String legacyPetKey() {
+		return "CUSTOMER#"+StringUtils.getDigits(phoneNumber) + "PET#"+petName.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+	}
+
+	@Benchmark
+	public String typedPetKey() {
+		return PetKey.of(CustomerKey.fromPhoneNumber(phoneNumber), petName).toString();
+	}
+
+	@Benchmark
+	public String legacyFormat() {
+		return petName.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+	}
+
+	@Benchmark
+	public String singlePassFormat() {
+		return KeyUtils.formatStringForKey(petName);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(KeyBenchmark.class.getSimpleName()).build()).run();
+	}
+}
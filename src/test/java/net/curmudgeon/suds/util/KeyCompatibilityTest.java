@@ -0,0 +1,87 @@
+package net.curmudgeon.suds.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.Test;
+
+/*
+ * Copyright (C) 2022 Jay Rustine
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ * 
+ * The single pass key builders against the string concatenation and regular
+ * expression they replaced (the legacy forms in KeyBenchmark), so records saved
+ * under the old keys are still found.
+ */
+public class KeyCompatibilityTest {
+
+	private static final List<String> PHONE_NUMBERS = Arrays.asList(
+			"(410) 123-1234", "410.123.1234", "+1 410 123 1234 ext. 5", "", "no digits", "\u0664\u0661\u0660 123-1234");
+
+	private static final List<String> PET_NAMES = Arrays.asList(
+			"Fluffer Nutter", "fLuFfEr nUtTeR", "Mr. Biscuit-2!", "O'Malley & Co.", "Zo\u00eb \u00d1and\u00fa", "\u5c0f\u767d", "  ", "");
+
+	@Test
+	public void a_testCustomerKeyMatchesLegacy() throws Exception {
+		for (String phoneNumber: PHONE_NUMBERS) {
+			assertEquals(CustomerKey.fromPhoneNumber(phoneNumber).getCustomerId(), legacyCustomerId(phoneNumber),
+					"customer id differs for [" + phoneNumber + "]");
+		}
+		
+		// The one difference: a missing phone number used to give "CUSTOMER#null".
+		assertEquals(CustomerKey.fromPhoneNumber(null).getCustomerId(), CustomerKey.PREFIX, "null phone number");
+		assertEquals(legacyCustomerId(null), "CUSTOMER#null", "legacy null phone number");
+	}
+
+	@Test
+	public void b_testPetKeyMatchesLegacy() throws Exception {
+		CustomerKey customerKey = CustomerKey.fromPhoneNumber("(410) 123-1234");
+		for (String name: PET_NAMES) {
+			assertEquals(KeyUtils.formatStringForKey(name), legacyFormat(name), "formatted key differs for [" + name + "]");
+			
+			PetKey petKey = PetKey.of(customerKey, name);
+			assertEquals(petKey.getPetId(), "PET#" + legacyFormat(name), "pet id differs for [" + name + "]");
+			assertEquals(petKey.toString(), "CUSTOMER#" + StringUtils.getDigits("(410) 123-1234") + "PET#" + legacyFormat(name),
+					"encoded pet key differs for [" + name + "]");
+		}
+	}
+
+	@Test
+	public void c_testNullPetName() throws Exception {
+		
+		// formatStringForKey keeps the legacy NullPointerException, PetKey.of treats null as empty.
+		assertThrows(NullPointerException.class, () -> KeyUtils.formatStringForKey(null));
+		assertThrows(NullPointerException.class, () -> legacyFormat(null));
+		assertEquals(PetKey.of(CustomerKey.fromPhoneNumber("(410) 123-1234"), null).getPetId(), PetKey.PREFIX, "null pet name");
+	}
+
+	@Test
+	public void d_testGroomerKeyMatchesLegacy() throws Exception {
+		for (String employeeNumber: Arrays.asList("SUDS001", "suds-001", "", null))
+			assertEquals(GroomerKey.fromEmployeeNumber(employeeNumber).getGroomerId(), "GROOMER#" + employeeNumber,
+					"groomer id differs for [" + employeeNumber + "]");
+	}
+
+	private static String legacyCustomerId(String phoneNumber) {
+		return "CUSTOMER#" + StringUtils.getDigits(phoneNumber);
+	}
+
+	private static String legacyFormat(String name) {
+		return name.replaceAll("[^a-zA-Z0-9]", "").toUpperCase();
+	}
+}